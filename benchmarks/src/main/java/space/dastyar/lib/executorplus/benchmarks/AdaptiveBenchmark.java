@@ -0,0 +1,105 @@
+package space.dastyar.lib.executorplus.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import space.dastyar.lib.executorplus.ExecutorPlus;
+
+/**
+ * Time to run a batch of tasks which mix computation with a blocking call,
+ * on fixed thread pools of a few and of many threads and on an adaptive
+ * thread pool which starts with one thread.
+ * <br>
+ * The count of threads is printed after each iteration, so the output
+ * shows the adaptive thread pool converging. Its decisions are logged
+ * with {@code -jvmArgs -Djava.util.logging.config.file=<file>} which sets
+ * {@code space.dastyar.lib.executorplus.level=FINE}.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AdaptiveBenchmark {
+
+    /**
+     * Count of tasks in a batch.
+     */
+    private static final int BATCH = 256;
+
+    @Param({"FIXED", "ADAPTIVE"})
+    public Pool pool;
+
+    @Param({"4", "64"})
+    public int threads;
+
+    /**
+     * Computation of each task in tokens of {@link Blackhole#consumeCPU(long)}.
+     */
+    @Param({"10000"})
+    public long work;
+
+    /**
+     * Duration of the blocking call of each task in microseconds.
+     */
+    @Param({"0", "1000"})
+    public long blocking;
+
+    private Pool.Target target;
+
+    private ExecutorPlus executor;
+
+    private List<Runnable> batch;
+
+    @Setup
+    public void setUp() {
+        target = pool.create(threads);
+        executor = target.plus();
+        long blockingNanos = TimeUnit.MICROSECONDS.toNanos(blocking);
+        batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            batch.add(() -> {
+                Blackhole.consumeCPU(work);
+                if (blockingNanos > 0) {
+                    LockSupport.parkNanos(blockingNanos);
+                }
+            });
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void printThreadCount() {
+        System.out.println(pool + " threads: " + executor.getThreadCount());
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        target.shutdown();
+    }
+
+    @Benchmark
+    public void runBatch() {
+        executor.executeAll(batch);
+        executor.waitToFinish();
+    }
+
+}
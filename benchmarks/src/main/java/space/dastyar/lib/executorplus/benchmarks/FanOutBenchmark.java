@@ -0,0 +1,98 @@
+package space.dastyar.lib.executorplus.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to run a tree of tasks in which each task submits {@code width}
+ * tasks until {@code depth} is reached, like a recursive file search,
+ * so most of the tasks are submitted by the threads of the pool.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FanOutBenchmark {
+
+    @Param({"FIXED", "CACHED", "SINGEL", "THREAD_POOL_EXECUTOR", "FORK_JOIN_POOL"})
+    public Pool pool;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    @Param({"2", "8"})
+    public int width;
+
+    @Param({"4"})
+    public int depth;
+
+    /**
+     * Size of each leaf task in tokens of {@link Blackhole#consumeCPU(long)}.
+     */
+    @Param({"0", "1000"})
+    public long work;
+
+    private Pool.Target target;
+
+    /**
+     * Count of tasks in the tree.
+     */
+    private long nodes;
+
+    @Setup
+    public void setUp() {
+        target = pool.create(threads);
+        long level = 1;
+        nodes = 0;
+        for (int i = 0; i <= depth; i++) {
+            nodes += level;
+            level *= width;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        target.shutdown();
+    }
+
+    @Benchmark
+    public void fanOut() throws InterruptedException {
+        AtomicLong pending = new AtomicLong(nodes);
+        CountDownLatch done = new CountDownLatch(1);
+        target.execute(() -> node(depth, pending, done));
+        done.await();
+    }
+
+    private void node(int level, AtomicLong pending, CountDownLatch done) {
+        if (level > 0) {
+            for (int i = 0; i < width; i++) {
+                target.execute(() -> node(level - 1, pending, done));
+            }
+        } else {
+            Blackhole.consumeCPU(work);
+        }
+        if (pending.decrementAndGet() == 0) {
+            done.countDown();
+        }
+    }
+
+}
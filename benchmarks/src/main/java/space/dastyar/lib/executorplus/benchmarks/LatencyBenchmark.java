@@ -0,0 +1,108 @@
+package space.dastyar.lib.executorplus.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Latency of a single task from submit until its result is seen by the
+ * caller, and of {@code invokAll} and {@code invokAny}.
+ * <br>
+ * Sample time mode reports the percentiles of the latency.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyBenchmark {
+
+    @Param({"FIXED", "CACHED", "SINGEL", "THREAD_POOL_EXECUTOR", "FORK_JOIN_POOL"})
+    public Pool pool;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    /**
+     * Size of each task in tokens of {@link Blackhole#consumeCPU(long)}.
+     */
+    @Param({"0", "1000"})
+    public long work;
+
+    /**
+     * Count of tasks passed to {@code invokAll} and {@code invokAny}.
+     */
+    @Param({"16"})
+    public int tasks;
+
+    /**
+     * Count of polls that an idle thread spins for before it parks, see
+     * {@code ExecutorPlus.setSpinWait}. Half of the threads may spin at
+     * once. It is ignored by the executors which are not an
+     * {@code ExecutorPlus}.
+     */
+    @Param({"0"})
+    public int spins;
+
+    private Pool.Target target;
+
+    private List<Callable<Long>> batch;
+
+    @Setup
+    public void setUp() {
+        target = pool.create(threads);
+        if (spins > 0 && target.plus() != null) {
+            target.plus().setSpinWait(spins, 100, Math.max(1, threads / 2));
+        }
+        long tokens = work;
+        batch = new ArrayList<>(tasks);
+        for (int i = 0; i < tasks; i++) {
+            batch.add(() -> {
+                Blackhole.consumeCPU(tokens);
+                return tokens;
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        target.shutdown();
+    }
+
+    @Benchmark
+    public long roundTrip() throws Exception {
+        return target.submit(batch.get(0)).get();
+    }
+
+    @Benchmark
+    public void invokAll(Blackhole blackhole) throws Exception {
+        for (Future<Long> future : target.invokeAll(batch)) {
+            blackhole.consume(future.get());
+        }
+    }
+
+    @Benchmark
+    public long invokAny() throws Exception {
+        return target.invokeAny(batch);
+    }
+
+}
@@ -0,0 +1,99 @@
+package space.dastyar.lib.executorplus.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import space.dastyar.lib.executorplus.ExecutorPlus;
+
+/**
+ * Cost of a {@code pause()} followed by a {@code resume()}, on an idle
+ * pool or while another thread keeps the pool busy with small tasks.
+ * The JDK executors have no pause, so only the pools of ExecutorPlus
+ * are measured.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PauseResumeBenchmark {
+
+    /**
+     * Maximum count of queued tasks that the feeder keeps.
+     */
+    private static final int BACKLOG = 1000;
+
+    @Param({"FIXED", "CACHED", "SINGEL"})
+    public Pool pool;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean loaded;
+
+    private Pool.Target target;
+
+    private ExecutorPlus executor;
+
+    private volatile boolean feeding;
+
+    private Thread feeder;
+
+    @Setup
+    public void setUp() {
+        target = pool.create(threads);
+        executor = target.plus();
+        if (loaded) {
+            feeding = true;
+            feeder = new Thread(this::feed, "feeder");
+            feeder.setDaemon(true);
+            feeder.start();
+        }
+    }
+
+    /**
+     * Keeps the pool busy with small tasks until {@link feeding} is
+     * {@code false}.
+     */
+    private void feed() {
+        while (feeding) {
+            if (executor.getQueueSize() < BACKLOG) {
+                executor.execute(() -> Blackhole.consumeCPU(100));
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        feeding = false;
+        if (feeder != null) {
+            feeder.join();
+        }
+        target.shutdown();
+    }
+
+    @Benchmark
+    public void pauseAndResume() {
+        executor.pause();
+        executor.resume();
+    }
+
+}
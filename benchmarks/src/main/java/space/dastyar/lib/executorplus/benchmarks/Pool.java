@@ -0,0 +1,218 @@
+package space.dastyar.lib.executorplus.benchmarks;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import space.dastyar.lib.executorplus.ExecutorPlus;
+import space.dastyar.lib.executorplus.ExecutorPlusFactory;
+import space.dastyar.lib.executorplus.SaturationPolicy;
+import space.dastyar.lib.executorplus.WaitStrategy;
+
+/**
+ * The executors which are compared by the benchmarks, used as a JMH
+ * parameter.
+ * <br>
+ * The cached and single thread pools ignore the count of threads, the
+ * adaptive thread pool takes it as its maximum count of threads. The ring
+ * buffer pools busy-spin or yield while they are idle, so with them the
+ * count of threads should be less than the count of cores.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public enum Pool {
+
+    FIXED {
+        @Override
+        Target create(int threads) {
+            return new PlusTarget(ExecutorPlusFactory.newFixedThreadPool(threads));
+        }
+    },
+    /**
+     * A fixed thread pool with a bounded {@code LinkedBlockingQueue}, to
+     * compare with the ring buffer pools.
+     */
+    FIXED_BOUNDED {
+        @Override
+        Target create(int threads) {
+            return new PlusTarget(ExecutorPlusFactory.newFixedThreadPool(threads, QUEUE_CAPACITY, SaturationPolicy.BLOCK));
+        }
+    },
+    RING_BUFFER_SPIN {
+        @Override
+        Target create(int threads) {
+            return new PlusTarget(ExecutorPlusFactory.newRingBufferThreadPool(threads, QUEUE_CAPACITY, WaitStrategy.BUSY_SPIN));
+        }
+    },
+    RING_BUFFER_YIELD {
+        @Override
+        Target create(int threads) {
+            return new PlusTarget(ExecutorPlusFactory.newRingBufferThreadPool(threads, QUEUE_CAPACITY, WaitStrategy.YIELD));
+        }
+    },
+    RING_BUFFER_PARK {
+        @Override
+        Target create(int threads) {
+            return new PlusTarget(ExecutorPlusFactory.newRingBufferThreadPool(threads, QUEUE_CAPACITY, WaitStrategy.BACKOFF_PARK));
+        }
+    },
+    ADAPTIVE {
+        @Override
+        Target create(int threads) {
+            return new PlusTarget(ExecutorPlusFactory.newAdaptiveThreadPool(1, threads));
+        }
+    },
+    CACHED {
+        @Override
+        Target create(int threads) {
+            return new PlusTarget(ExecutorPlusFactory.newCachedThreadPool());
+        }
+    },
+    SINGEL {
+        @Override
+        Target create(int threads) {
+            return new PlusTarget(ExecutorPlusFactory.newSingelThreadPool());
+        }
+    },
+    THREAD_POOL_EXECUTOR {
+        @Override
+        Target create(int threads) {
+            return new ServiceTarget(new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>()));
+        }
+    },
+    FORK_JOIN_POOL {
+        @Override
+        Target create(int threads) {
+            return new ServiceTarget(new ForkJoinPool(threads));
+        }
+    };
+
+    /**
+     * Capacity of the queue of the bounded pools.
+     */
+    static final int QUEUE_CAPACITY = 1 << 16;
+
+    /**
+     * Creates the executor.
+     *
+     * @param threads count of threads.
+     */
+    abstract Target create(int threads);
+
+    /**
+     * The operations that both {@link ExecutorPlus} and
+     * {@link ExecutorService} offer.
+     */
+    interface Target {
+
+        void execute(Runnable task);
+
+        <T> Future<T> submit(Callable<T> task);
+
+        <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException;
+
+        <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException;
+
+        /**
+         * @return the executor or {@code null} if it is not an
+         * {@link ExecutorPlus}.
+         */
+        ExecutorPlus plus();
+
+        void shutdown() throws InterruptedException;
+
+    }
+
+    private static final class PlusTarget implements Target {
+
+        private final ExecutorPlus executor;
+
+        PlusTarget(ExecutorPlus executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            executor.execute(task);
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return executor.submit(task);
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) {
+            return executor.invokAll(tasks);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+                throws InterruptedException, ExecutionException {
+            return executor.invokAny(tasks);
+        }
+
+        @Override
+        public ExecutorPlus plus() {
+            return executor;
+        }
+
+        @Override
+        public void shutdown() {
+            executor.shutdownNow();
+        }
+
+    }
+
+    private static final class ServiceTarget implements Target {
+
+        private final ExecutorService executor;
+
+        ServiceTarget(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            executor.execute(task);
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return executor.submit(task);
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+                throws InterruptedException {
+            return executor.invokeAll(tasks);
+        }
+
+        @Override
+        public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+                throws InterruptedException, ExecutionException {
+            return executor.invokeAny(tasks);
+        }
+
+        @Override
+        public ExecutorPlus plus() {
+            return null;
+        }
+
+        @Override
+        public void shutdown() throws InterruptedException {
+            executor.shutdownNow();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+
+    }
+
+}
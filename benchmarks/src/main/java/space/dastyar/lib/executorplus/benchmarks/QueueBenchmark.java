@@ -0,0 +1,82 @@
+package space.dastyar.lib.executorplus.benchmarks;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the ring buffer queue of {@code newRingBufferThreadPool} under
+ * each wait strategy with a bounded {@code LinkedBlockingQueue}: the
+ * throughput of many threads submitting small tasks at once, and the round
+ * trip of a single task to an idle pool, which shows the cost of waking up
+ * an idle thread.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark {
+
+    private static final int TASKS = 1000;
+
+    @Param({"FIXED_BOUNDED", "RING_BUFFER_SPIN", "RING_BUFFER_YIELD", "RING_BUFFER_PARK", "THREAD_POOL_EXECUTOR"})
+    public Pool pool;
+
+    @Param({"1", "2"})
+    public int threads;
+
+    private Pool.Target target;
+
+    private final Callable<Long> task = System::nanoTime;
+
+    @Setup
+    public void setUp() {
+        target = pool.create(threads);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        target.shutdown();
+    }
+
+    /**
+     * Four threads submit a batch of empty tasks each and wait for them,
+     * in tasks per microsecond.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OperationsPerInvocation(TASKS)
+    @Threads(4)
+    public void contendedExecute() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(TASKS);
+        for (int i = 0; i < TASKS; i++) {
+            target.execute(done::countDown);
+        }
+        done.await();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public long roundTrip() throws Exception {
+        return target.submit(task).get();
+    }
+
+}
@@ -0,0 +1,94 @@
+package space.dastyar.lib.executorplus.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of submitting a batch of tasks from a single thread and
+ * waiting for all of them, in tasks per second.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubmitBenchmark {
+
+    private static final int TASKS = 1000;
+
+    @Param({"FIXED", "CACHED", "SINGEL", "THREAD_POOL_EXECUTOR", "FORK_JOIN_POOL"})
+    public Pool pool;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    /**
+     * Size of each task in tokens of {@link Blackhole#consumeCPU(long)}.
+     */
+    @Param({"0", "100", "10000"})
+    public long work;
+
+    private Pool.Target target;
+
+    @Setup
+    public void setUp() {
+        target = pool.create(threads);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        target.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void execute() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(TASKS);
+        long tokens = work;
+        for (int i = 0; i < TASKS; i++) {
+            target.execute(() -> {
+                Blackhole.consumeCPU(tokens);
+                done.countDown();
+            });
+        }
+        done.await();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TASKS)
+    public void submit(Blackhole blackhole) throws Exception {
+        List<Future<Long>> futures = new ArrayList<>(TASKS);
+        long tokens = work;
+        for (int i = 0; i < TASKS; i++) {
+            futures.add(target.submit(() -> {
+                Blackhole.consumeCPU(tokens);
+                return tokens;
+            }));
+        }
+        for (Future<Long> future : futures) {
+            blackhole.consume(future.get());
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A queued task which completes itself, as a {@link CompletableFuture},
+ * in the worker which runs it.
+ * <br>
+ * Cancelling the future before the task starts makes the worker skip the
+ * task, a running task is not interrupted.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class AsyncTask<T> extends CompletableFuture<T> implements Runnable {
+
+    private final Callable<T> task;
+
+    /**
+     * The exception which is thrown by the task, it is only read by the
+     * worker which has run the task.
+     */
+    private Throwable failure;
+
+    AsyncTask(Callable<T> task) {
+        this.task = task;
+    }
+
+    @Override
+    public void run() {
+        if (isDone()) {
+            return;
+        }
+        try {
+            complete(task.call());
+        } catch (Throwable e) {
+            failure = e;
+            completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @see failure
+     */
+    Throwable getFailure() {
+        return failure;
+    }
+
+}
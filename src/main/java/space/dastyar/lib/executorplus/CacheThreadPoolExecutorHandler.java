@@ -1,7 +1,16 @@
 package space.dastyar.lib.executorplus;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
  * CacheThreadPoolExecutor implementation of {@link ExecutorPlus}.
+ * <br>
+ * Submitted tasks are taken by idle workers, a new worker is created only
+ * when there is no idle worker to take the task and the count of workers
+ * is less than {@link maxThreads}. Workers which stay idle for
+ * {@link keepAliveNanos} are retired. A worker which waits for a permit of
+ * the rate limit is counted as idle too.
  * 
  * @since 0.1
  * @author Alireza Dastyar
@@ -9,18 +18,151 @@ package space.dastyar.lib.executorplus;
 class CacheThreadPoolExecutorHandler extends ExecuteHandler  {
 
     /**
-     * Checks queue's size and create a new worker thread if needed.
+     * Maximum count of workers.
+     */
+    private final int maxThreads;
+
+    /**
+     * Time that an idle worker waits for a new task before it retires.
+     */
+    private final long keepAliveNanos;
+
+    /**
+     * Count of workers which are not running a task, a worker is counted
+     * from its creation or from the end of its last task until it takes
+     * the next task or retires.
+     */
+    private final AtomicInteger idleWorkers = new AtomicInteger();
+
+    public CacheThreadPoolExecutorHandler() {
+        this(Integer.MAX_VALUE, 60, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param maxThreads maximum count of workers.
+     * @param keepAlive time that an idle worker waits before it retires.
+     * @param unit the time unit of the keepAlive argument.
+     */
+    public CacheThreadPoolExecutorHandler(int maxThreads, long keepAlive, TimeUnit unit) {
+        this.maxThreads = maxThreads;
+        this.keepAliveNanos = unit.toNanos(keepAlive);
+    }
+
+    /**
+     * Creates a new worker if there are more queued tasks than idle workers.
+     * Under a rate limit the new worker must have a permit to take beside
+     * the idle workers, or be the only idle worker which waits for the next
+     * permit, so the workers which wait for permits do not pile up.
      */
     @Override
     protected void start() {
-        waitFor(100);
-        if (getQueueSize() > 0) {
-            boolean isHandeled = false;
-            if (!isHandeled) {
-                createAndStartWorker();
-                setThreadCount(getThreadCount() + 1);
+        int idle = idleWorkers.get();
+        if (!isPaused() && getTasks().size() > idle
+                && (idle == 0 || getRateLimiter().getAvailablePermits() > idle)) {
+            addWorker();
+        }
+    }
+
+    /**
+     * Creates one worker at most, each worker which takes a task creates
+     * the next one while there are more queued tasks than idle workers, so
+     * a batch does not create a worker for each of its tasks up front.
+     */
+    @Override
+    protected void start(int count) {
+        start();
+    }
+
+    /**
+     * Creates a new worker unless the count of workers has reached
+     * {@link maxThreads}.
+     */
+    private void addWorker() {
+        if (isShutdownNow()) {
+            return;
+        }
+        int count;
+        do {
+            count = getThreadCount();
+            if (count >= maxThreads) {
+                return;
             }
+        } while (!compareAndSetThreadCount(count, count + 1));
+        idleWorkers.incrementAndGet();
+        createAndStartWorker();
+    }
+
+    /**
+     * Spins for a task if spinning is enabled and then waits up to
+     * {@link keepAliveNanos} for a task, the worker is counted as idle
+     * while it spins.
+     *
+     * @return next task or {@code null} if the worker should retire.
+     */
+    @Override
+    Runnable takeTask(Worker worker) throws InterruptedException {
+        Runnable task;
+        try {
+            task = worker.pollLocalTask();
+            if (task == null) {
+                task = getTasks().poll();
+            }
+            if (task == null && !worker.isDead()) {
+                task = spinForTask(worker, getTasks()::poll);
+            }
+            if (task == null && !worker.isDead()) {
+                task = getTasks().poll(keepAliveNanos, TimeUnit.NANOSECONDS);
+            }
+        } finally {
+            idleWorkers.decrementAndGet();
+        }
+        if (task != null) {
+            // a task might be queued while this worker was still counted
+            // as idle, so no worker is created for it.
+            start();
+        }
+        return task;
+    }
+
+    /**
+     * Counts the worker as idle before the task is reported as finished,
+     * so a task which is submitted right after that reuses the worker.
+     */
+    @Override
+    void afterExecute(Worker worker, Runnable task, Throwable thrown) {
+        if (thrown == null) {
+            idleWorkers.incrementAndGet();
         }
+        super.afterExecute(worker, task, thrown);
+    }
+
+    /**
+     * Updates the count of workers and replaces the exited worker if
+     * there are queued tasks that no idle worker will take.
+     */
+    @Override
+    void workerExited(Worker worker) {
+        super.workerExited(worker);
+        int count;
+        do {
+            count = getThreadCount();
+        } while (!compareAndSetThreadCount(count, count - 1));
+        start();
+    }
+
+    /**
+     * Creates workers for the tasks which are queued during the pause,
+     * see {@link #start(int)}.
+     */
+    @Override
+    public void resume() {
+        super.resume();
+        start();
+    }
+
+    @Override
+    public void setPoolSize(int size) {
+        throw new UnsupportedOperationException("A cached thread pool creates and retires its threads on demand.");
     }
 
 }
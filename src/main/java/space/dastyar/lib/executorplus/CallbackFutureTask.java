@@ -0,0 +1,33 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ListenableFutureTask} which passes itself to a callback as soon
+ * as it is done, normally, exceptionally or by cancellation.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class CallbackFutureTask<T> extends ListenableFutureTask<T> {
+
+    private final Consumer<Future<T>> callback;
+
+    /**
+     * @param task the task to run.
+     * @param callback runs in the thread which completes the task.
+     */
+    CallbackFutureTask(Callable<T> task, Consumer<Future<T>> callback) {
+        super(task);
+        this.callback = callback;
+    }
+
+    @Override
+    protected void done() {
+        callback.accept(this);
+        super.done();
+    }
+
+}
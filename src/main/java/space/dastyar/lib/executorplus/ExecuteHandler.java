@@ -3,16 +3,22 @@ package space.dastyar.lib.executorplus;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 /**
  * ExecuteHandler implements execution related part of {@link ExecutorPlus}
@@ -23,8 +29,48 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 abstract class ExecuteHandler extends ExecutorManager {
 
+    /**
+     * Decides what happens to a new task when {@link getTasks()} is full.
+     */
+    private final SaturationPolicy saturationPolicy;
+
+    /**
+     * Count of tasks handled by each {@link SaturationPolicy}, indexed by
+     * ordinal.
+     */
+    private final LongAdder[] saturationCounts = new LongAdder[SaturationPolicy.values().length];
+
+    /**
+     * Duration of a tick of {@link timer}.
+     */
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Count of buckets of {@link timer}.
+     */
+    private static final int TICKS_PER_WHEEL = 4096;
+
+    /**
+     * Holds the scheduled tasks until they are due, created on the first
+     * schedule.
+     */
+    private volatile TimingWheel timer;
+
+    /**
+     * Count of created workers, used in their names.
+     */
+    private final AtomicInteger workerSequence = new AtomicInteger();
+
+    private final KeyedLanes lanes = new KeyedLanes(this);
+
+    /**
+     * Indicates that tasks are wrapped by {@link #wrap} when they are
+     * queued.
+     */
+    private volatile boolean queueWaitRecorded = true;
+
     public ExecuteHandler() {
-        initWorkers();
+        this(0);
     }
 
     /**
@@ -32,128 +78,452 @@ abstract class ExecuteHandler extends ExecutorManager {
      * @param threadCount indicates count of thread to be created.
      */
     public ExecuteHandler(int threadCount) {
+        this(threadCount, new LinkedBlockingQueue<>(), SaturationPolicy.ABORT);
+    }
+
+    /**
+     *
+     * @param threadCount indicates count of thread to be created.
+     * @param tasks the queue of tasks, which might be bounded.
+     * @param saturationPolicy decides what happens to a new task when the
+     * queue is full.
+     */
+    public ExecuteHandler(int threadCount, BlockingQueue<Runnable> tasks, SaturationPolicy saturationPolicy) {
+        super(tasks);
+        this.saturationPolicy = saturationPolicy;
+        for (int i = 0; i < saturationCounts.length; i++) {
+            saturationCounts[i] = new LongAdder();
+        }
         setThreadCount(threadCount);
         initWorkers();
     }
 
+    /**
+     * Validates the arguments and creates a bounded queue of tasks.
+     *
+     * @param queueCapacity the maximum number of queued tasks.
+     * @param saturationPolicy what happens to a new task when the queue is full.
+     * @return the bounded queue.
+     */
+    static BlockingQueue<Runnable> newBoundedQueue(int queueCapacity, SaturationPolicy saturationPolicy) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity can not be zero or less.");
+        }
+        if (saturationPolicy == null) {
+            throw new NullPointerException("Saturation policy can not be null!");
+        }
+        return new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Validates the arguments and creates a ring buffer queue of tasks.
+     *
+     * @param queueCapacity the minimum number of queued tasks, it is rounded
+     * up to a power of two.
+     * @param saturationPolicy what happens to a new task when the queue is full.
+     * @param waitStrategy how an idle worker waits for a task.
+     * @return the ring buffer queue.
+     */
+    static BlockingQueue<Runnable> newRingBuffer(int queueCapacity, SaturationPolicy saturationPolicy, WaitStrategy waitStrategy) {
+        if (saturationPolicy == null) {
+            throw new NullPointerException("Saturation policy can not be null!");
+        }
+        return new RingBufferQueue(queueCapacity, waitStrategy);
+    }
+
     @Override
     public void execute(Runnable task) {
         beforeExecution(task);
-        getTasks().add(task);
+        addTask(task);
         start();
     }
 
     @Override
-    public Future<?> submit(Runnable task) {
+    public ListenableFuture<?> submit(Runnable task) {
         beforeExecution(task);
-        FutureTask f = new FutureTask(task, null);
-        getTasks().add(f);
+        ListenableFutureTask<Object> f = new ListenableFutureTask<>(task, null);
+        addTask(f);
         start();
-        return new FutureSimulator(f);
+        return new FutureSimulator<>(f);
     }
 
     @Override
-    public <T> Future<T> submit(Runnable task, T result) {
+    public <T> ListenableFuture<T> submit(Runnable task, T result) {
         beforeExecution(task);
-        FutureTask<T> f = new FutureTask<T>(task, result);
-        getTasks().add(f);
+        ListenableFutureTask<T> f = new ListenableFutureTask<>(task, result);
+        addTask(f);
         start();
-        return new FutureSimulator(f);
+        return new FutureSimulator<>(f);
     }
 
     @Override
-    public <T> Future<T> submit(Callable<T> task) {
+    public <T> ListenableFuture<T> submit(Callable<T> task) {
         beforeExecution(task);
-        FutureTask<T> f = new FutureTask<T>(task);
-        getTasks().add(f);
+        ListenableFutureTask<T> f = new ListenableFutureTask<>(task);
+        addTask(f);
         start();
-        return new FutureSimulator(f);
+        return new FutureSimulator<>(f);
+    }
+
+    @Override
+    public void execute(Object key, Runnable task) {
+        beforeKeyedExecution(key, task);
+        addToLane(key, task);
+    }
+
+    @Override
+    public <T> ListenableFuture<T> submit(Object key, Callable<T> task) {
+        beforeKeyedExecution(key, task);
+        ListenableFutureTask<T> f = new ListenableFutureTask<>(task);
+        addToLane(key, f);
+        return new FutureSimulator<>(f);
+    }
+
+    @Override
+    public CompletableFuture<Void> submitAsync(Runnable task) {
+        beforeExecution(task);
+        return submitAsync(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submitAsync(Callable<T> task) {
+        beforeExecution(task);
+        AsyncTask<T> f = new AsyncTask<>(task);
+        addTask(f);
+        start();
+        return f;
+    }
+
+    @Override
+    public TaskGroup newTaskGroup() {
+        return newTaskGroup(true);
+    }
+
+    @Override
+    public TaskGroup newTaskGroup(boolean failFast) {
+        return new TaskGroupHandler(this, failFast);
+    }
+
+    @Override
+    public void executeAll(Collection<? extends Runnable> tasks) {
+        beforeBatchExecution(tasks);
+        List<Runnable> batch = new ArrayList<>(tasks);
+        addTasks(batch);
+        start(batch.size());
+    }
+
+    @Override
+    public <T> List<Future<T>> submitAll(Collection<? extends Callable<T>> tasks) {
+        Collection<? extends Callable<T>> umTask = Collections.unmodifiableCollection(tasks);
+        beforeBatchExecution(umTask);
+        List<Future<T>> futures = new ArrayList<>(umTask.size());
+        submitTasks(umTask, futures, null);
+        return futures;
     }
 
     @Override
     public <T> T invokAny(Collection<? extends Callable<T>> tasks)
             throws InterruptedException, ExecutionException {
+        try {
+            return doInvokAny(tasks, false, 0);
+        } catch (TimeoutException e) {
+            // can not happen without a timeout.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public <T> T invokAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return doInvokAny(tasks, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Submits the tasks and takes them from a completion queue in order of
+     * completion until one of them succeeds, then cancels the others.
+     *
+     * @param timed {@code true} if {@code nanos} should be considered.
+     * @param nanos the maximum time to wait.
+     */
+    private <T> T doInvokAny(Collection<? extends Callable<T>> tasks, boolean timed, long nanos)
+            throws InterruptedException, ExecutionException, TimeoutException {
         Collection<? extends Callable<T>> umTask = Collections.unmodifiableCollection(tasks);
         beforeInvokAnyExecution(umTask);
-        List<Future<T>> futures = new ArrayList<>();
-        submitTasks(umTask, futures);
-        while (true) {
-            AtomicInteger failds = new AtomicInteger(0);
-            for (Future<T> future : futures) {
-                if (future.isDone()) {
-                    try {
-                        T result = future.get();
-                        return result;
-                    } catch (ExecutionException e) {
-                        throwExecutionExceptionIfNeeded(failds, futures.size(), e);
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        BlockingQueue<Future<T>> completed = new LinkedBlockingQueue<>();
+        List<Future<T>> futures = new ArrayList<>(umTask.size());
+        try {
+            submitTasks(umTask, futures, completed::add);
+            ExecutionException failure = null;
+            for (int remaining = futures.size(); remaining > 0; remaining--) {
+                Future<T> future;
+                if (timed) {
+                    future = completed.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (future == null) {
+                        throw new TimeoutException();
                     }
+                } else {
+                    future = completed.take();
+                }
+                try {
+                    return future.get();
+                } catch (ExecutionException e) {
+                    failure = e;
+                } catch (CancellationException e) {
+                    failure = new ExecutionException(e);
                 }
             }
-            waitFor(100);
+            throw new ExecutionException("All tasks faild!", failure);
+        } finally {
+            cancelAll(futures);
+        }
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        beforeScheduling(task, unit);
+        return arm(new ScheduledTask<Void>(this, task, null, System.nanoTime() + unit.toNanos(delay), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> task, long delay, TimeUnit unit) {
+        beforeScheduling(task, unit);
+        return arm(new ScheduledTask<>(this, task, System.nanoTime() + unit.toNanos(delay)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period,
+            TimeUnit unit) {
+        beforeScheduling(task, unit);
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period can not be zero or less.");
+        }
+        return arm(new ScheduledTask<Void>(this, task, null,
+                System.nanoTime() + unit.toNanos(initialDelay), unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay,
+            TimeUnit unit) {
+        beforeScheduling(task, unit);
+        if (delay <= 0) {
+            throw new IllegalArgumentException("Delay can not be zero or less.");
         }
+        return arm(new ScheduledTask<Void>(this, task, null,
+                System.nanoTime() + unit.toNanos(initialDelay), -unit.toNanos(delay)));
     }
 
     /**
-     * If all tasks are failed throws a {@link ExecutionException}; 
+     * Counts the task as in flight and adds it to {@link timer}, it stays
+     * in flight until it runs or is cancelled.
+     *
+     * @return the task.
      */
-    private void throwExecutionExceptionIfNeeded(AtomicInteger failds, int futuresSize, ExecutionException e) throws ExecutionException {
-        failds.addAndGet(1);
-        if (failds.get() >= futuresSize) {
-            throw new ExecutionException("All tasks faild!", e);
+    private <V> ScheduledTask<V> arm(ScheduledTask<V> task) {
+        tasksQueued(1);
+        try {
+            task.setTimeout(timer().add(task, task.getTime()));
+        } catch (RuntimeException e) {
+            tasksFinished(1);
+            throw e;
         }
+        return task;
     }
 
     /**
-     * Submits tasks from unmodifiable collection and
-     * add futures to futures list.
+     * Schedules the next run of a periodic task, runs before the current
+     * run is counted as finished so the executor does not look idle
+     * meanwhile.
+     *
+     * @param task the periodic task.
      */
-    private <T> void submitTasks(Collection<? extends Callable<T>> umTask, List<Future<T>> futures) {
-        for (Callable<T> task : umTask) {
-            futures.add(submit(task));
+    void reschedule(ScheduledTask<?> task) {
+        if (isShutdown()) {
+            task.cancel(false);
+            return;
+        }
+        try {
+            arm(task);
+        } catch (RejectedExecutionException e) {
+            // shutdown meanwhile.
+            task.cancel(false);
+            return;
+        }
+        // the task might be cancelled while its previous timeout was set.
+        if (task.isCancelled()) {
+            cancelTimeout(task);
         }
     }
 
-    @Override
-    public <T> T invokAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
-            throws InterruptedException, ExecutionException, TimeoutException {
-        Collection<? extends Callable<T>> umTask = Collections.unmodifiableCollection(tasks);
-        beforeInvokAnyExecution(umTask);
-        Date time = new Date(TimeUnit.MILLISECONDS.convert(timeout, unit));
-        List<Future<T>> futures = new ArrayList<>();
-        submitTasks(umTask, futures);
-        while (new Date().before(time)) {
-            AtomicInteger failds = new AtomicInteger(0);
-            for (Future<T> future : futures) {
-                if (future.isDone()) {
-                    try {
-                        T result = future.get();
-                        return result;
-                    } catch (ExecutionException e) {
-                        throwExecutionExceptionIfNeeded(failds, futures.size(), e);
+    /**
+     * Removes the task from {@link timer} if it is not due yet.
+     *
+     * @param task the cancelled task.
+     */
+    void cancelTimeout(ScheduledTask<?> task) {
+        TimingWheel.Timeout timeout = task.getTimeout();
+        if (timeout != null && timer.cancel(timeout)) {
+            tasksFinished(1);
+        }
+    }
+
+    /**
+     * Queues a scheduled task which is due, runs in the thread of
+     * {@link timer}.
+     * <br>
+     * The thread of the timer must neither wait for space in the queue nor
+     * run a task, so a task which is due while the queue is full fires again
+     * on the next tick under {@link SaturationPolicy#BLOCK} and
+     * {@link SaturationPolicy#CALLER_RUNS}, the other policies handle it as
+     * they handle any new task.
+     *
+     * @param task the due task.
+     */
+    private void fire(Runnable task) {
+        Runnable queued = toQueued(task);
+        if (!getTasks().offer(queued)) {
+            if (saturationPolicy == SaturationPolicy.BLOCK || saturationPolicy == SaturationPolicy.CALLER_RUNS) {
+                saturationCounts[saturationPolicy.ordinal()].increment();
+                refire((ScheduledTask<?>) task);
+                return;
+            }
+            try {
+                saturated(queued);
+            } catch (RuntimeException e) {
+                discard(task);
+                return;
+            }
+        }
+        TaskEvents.taskQueued(getName());
+        start();
+    }
+
+    /**
+     * Adds a due task which could not be queued to {@link timer} again, it
+     * stays counted as in flight meanwhile.
+     *
+     * @param task the due task.
+     */
+    private void refire(ScheduledTask<?> task) {
+        try {
+            task.setTimeout(timer().add(task, System.nanoTime() + TICK_NANOS));
+        } catch (RejectedExecutionException e) {
+            // shutdown meanwhile.
+            discard(task);
+            return;
+        }
+        // the task might be cancelled while its previous timeout was set.
+        if (task.isCancelled()) {
+            cancelTimeout(task);
+        }
+    }
+
+    /**
+     * Creates {@link timer} if it is not created yet.
+     */
+    private TimingWheel timer() {
+        TimingWheel wheel = timer;
+        if (wheel == null) {
+            synchronized (this) {
+                wheel = timer;
+                if (wheel == null) {
+                    wheel = new TimingWheel(TICK_NANOS, TICKS_PER_WHEEL, this::fire, this::discard);
+                    timer = wheel;
+                    // shutdown meanwhile, so it is not stopped by stopTimer.
+                    if (isShutdown()) {
+                        wheel.stop();
                     }
                 }
             }
-            waitFor(100);
         }
-        throw new TimeoutException();
+        return wheel;
+    }
+
+    /**
+     * Cancels the scheduled tasks which are not due yet.
+     */
+    private void stopTimer() {
+        TimingWheel wheel;
+        synchronized (this) {
+            wheel = timer;
+        }
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
+    /**
+     * Cancels the scheduled tasks which are not due yet.
+     */
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        stopTimer();
+    }
+
+    /**
+     * Cancels the scheduled tasks which are not due yet, they are not
+     * included in the returned list.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> remaining = super.shutdownNow();
+        stopTimer();
+        return remaining;
+    }
+
+    /**
+     * Submits tasks from unmodifiable collection as a batch and
+     * add futures to futures list. If a task can not be queued, the
+     * futures of the whole batch are cancelled, since the caller never gets
+     * them.
+     *
+     * @param onDone runs with the future of each task as soon as it is done,
+     * might be {@code null}.
+     */
+    private <T> void submitTasks(Collection<? extends Callable<T>> umTask, List<Future<T>> futures,
+            Consumer<Future<T>> onDone) {
+        List<Runnable> batch = new ArrayList<>(umTask.size());
+        for (Callable<T> task : umTask) {
+            ListenableFutureTask<T> f = onDone == null ? new ListenableFutureTask<>(task)
+                    : new CallbackFutureTask<>(task, onDone);
+            batch.add(f);
+            futures.add(new FutureSimulator<>(f));
+        }
+        try {
+            addTasks(batch);
+        } catch (RuntimeException e) {
+            cancelAll(futures);
+            throw e;
+        }
+        start(batch.size());
+    }
+
+    /**
+     * Cancels the tasks which have not completed yet and interrupts them
+     * if they are running.
+     */
+    private <T> void cancelAll(List<Future<T>> futures) {
+        for (Future<T> future : futures) {
+            future.cancel(true);
+        }
     }
 
     @Override
     public <T> List<Future<T>> invokAll(Collection<? extends Callable<T>> tasks) {
         Collection<? extends Callable<T>> umTask = Collections.unmodifiableCollection(tasks);
         beforeInvokAllExecution(umTask);
-        List<Future<T>> futures = new ArrayList<>();
-        submitTasks(umTask, futures);
-        while (true) {
-            boolean isDone = true;
-            for (Future<T> future : futures) {
-                if (!future.isDone()) {
-                    isDone = false;
-                }
-            }
-            if (isDone) {
-                break;
-            }
+        CountDownLatch latch = new CountDownLatch(umTask.size());
+        List<Future<T>> futures = new ArrayList<>(umTask.size());
+        submitTasks(umTask, futures, future -> latch.countDown());
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
         }
         return futures;
     }
@@ -162,33 +532,22 @@ abstract class ExecuteHandler extends ExecutorManager {
     public <T> List<Future<T>> invokAll(Collection<? extends Callable<T>> tasks,
              long timeout, TimeUnit unit) {
         Collection<? extends Callable<T>> umTask = Collections.unmodifiableCollection(tasks);
-        beforeInvokAllExecution(tasks);
-        Date time = new Date(TimeUnit.MILLISECONDS.convert(timeout, unit));
-        List<Future<T>> futures = new ArrayList<>();
-        submitTasks(umTask, futures);
-        while (new Date().before(time)) {
-            if (areAllTasksDone(futures)) {
-                break;
+        beforeInvokAllExecution(umTask);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        CountDownLatch latch = new CountDownLatch(umTask.size());
+        List<Future<T>> futures = new ArrayList<>(umTask.size());
+        submitTasks(umTask, futures, future -> latch.countDown());
+        try {
+            if (!latch.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                cancelAll(futures);
             }
+        } catch (InterruptedException e) {
+            cancelAll(futures);
+            Thread.currentThread().interrupt();
         }
         return futures;
     }
 
-    /**
-     * Checks that all tasks of future list are done or not.
-     * @param <T> return type of futures.
-     * @param futures list of futures.
-     * @return {@code true} if all tasks are done, otherwise {@code false}.
-     */
-    private <T> boolean areAllTasksDone(List<Future<T>> futures) {
-        for (Future<T> future : futures) {
-            if (!future.isDone()) {
-                return false;
-            }
-        }
-        return true;
-    }
-
     /**
      * Checks validity of task and executor state.
      *
@@ -203,6 +562,48 @@ abstract class ExecuteHandler extends ExecutorManager {
         }
     }
 
+    /**
+     * validates input of the keyed execute methods.
+     * @param key the key of the lane.
+     * @param task the task.
+     */
+    protected void beforeKeyedExecution(Object key, Object task) {
+        if (key == null) {
+            throw new NullPointerException("Key can not be null!");
+        }
+        beforeExecution(task);
+    }
+
+    /**
+     * validates input of the schedule methods.
+     * @param task the task.
+     * @param unit the time unit of delays.
+     */
+    protected void beforeScheduling(Object task, TimeUnit unit) {
+        beforeExecution(task);
+        if (unit == null) {
+            throw new NullPointerException("Time unit can not be null!");
+        }
+    }
+
+    /**
+     * validates input of {@link executeAll} and {@link submitAll}.
+     * @param tasks collections of tasks.
+     */
+    protected void beforeBatchExecution(Collection<?> tasks) {
+        if (tasks == null) {
+            throw new NullPointerException("Tasks can not be null!");
+        }
+        for (Object task : tasks) {
+            if (task == null) {
+                throw new NullPointerException("Task can not be null!");
+            }
+        }
+        if (isShutdown()) {
+            throw new RejectedExecutionException("Execution of new tasks is not possible after shutdown!");
+        }
+    }
+
     /**
      * validates input of {@link invokAny}.
      * @param <T> return type of futures.
@@ -244,6 +645,376 @@ abstract class ExecuteHandler extends ExecutorManager {
         }
     }
 
+    /**
+     * Adds the task to the queue of tasks.
+     * <br>
+     * Note: to be override in subclasses if needed.
+     *
+     * @param task the task to be queued.
+     */
+    protected void enqueue(Runnable task) {
+        if (!getTasks().offer(task)) {
+            saturated(task);
+        }
+    }
+
+    /**
+     * Handles the task due to {@link saturationPolicy} when the queue is full.
+     *
+     * @param task the task which could not be queued.
+     */
+    private void saturated(Runnable task) {
+        saturationCounts[saturationPolicy.ordinal()].increment();
+        switch (saturationPolicy) {
+            case BLOCK:
+                try {
+                    getTasks().put(task);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for space in the queue!", e);
+                }
+                break;
+            case CALLER_RUNS:
+                // if the task throws, addTask counts it as finished.
+                task.run();
+                tasksFinished(1);
+                break;
+            case DISCARD_OLDEST:
+                while (!getTasks().offer(task)) {
+                    Runnable oldest = getTasks().poll();
+                    if (oldest != null) {
+                        discard(oldest);
+                    }
+                }
+                break;
+            case DISCARD_NEWEST:
+                discard(task);
+                break;
+            default:
+                throw new RejectedExecutionException("Queue of tasks is full!");
+        }
+    }
+
+    /**
+     * Drops a task which will never run and cancels it if it is a {@link Future}.
+     */
+    private void discard(Runnable task) {
+        task = QueuedTask.unwrap(task);
+        if (task instanceof KeyedLanes.Lane) {
+            discardLane((KeyedLanes.Lane) task);
+            return;
+        }
+        if (task instanceof Future) {
+            ((Future<?>) task).cancel(false);
+        }
+        tasksFinished(1);
+    }
+
+    @Override
+    public long getSaturationCount(SaturationPolicy policy) {
+        return saturationCounts[policy.ordinal()].sum();
+    }
+
+    @Override
+    public ExecutorStats getStats() {
+        TaskRecorder total = new TaskRecorder();
+        List<WorkerStats> workers = new ArrayList<>();
+        collectStats(total, workers);
+        long[] saturations = new long[saturationCounts.length];
+        for (int i = 0; i < saturations.length; i++) {
+            saturations[i] = saturationCounts[i].sum();
+        }
+        return new ExecutorStats(getSubmittedCount(), total.getCompleted(), total.getFailed(), saturations,
+                Collections.unmodifiableList(workers), total.getQueueWait().snapshot(),
+                total.getExecutionTime().snapshot(), getRateLimiter().getWaitCount(),
+                getRateLimiter().getWaitNanos());
+    }
+
+    @Override
+    public void setQueueWaitRecorded(boolean recorded) {
+        this.queueWaitRecorded = recorded;
+    }
+
+    /**
+     * Wraps a task to keep the time that it is queued.
+     * <br>
+     * Note: to be override in subclasses if needed.
+     *
+     * @param task the task to be queued.
+     * @return the wrapped task.
+     */
+    protected QueuedTask wrap(Runnable task) {
+        return new QueuedTask(task);
+    }
+
+    /**
+     * Returns the task as it goes to the queue, which is wrapped by
+     * {@link #wrap} only if {@link queueWaitRecorded} is on.
+     * <br>
+     * Note: to be override in subclasses whose queue needs wrapped tasks.
+     *
+     * @param task the task to be queued.
+     * @return the task or the wrapped task.
+     */
+    protected Runnable toQueued(Runnable task) {
+        return queueWaitRecorded ? wrap(task) : task;
+    }
+
+    /**
+     * Counts the task as in flight and adds it to the queue of tasks,
+     * wrapped if it is not a {@link QueuedTask} yet.
+     *
+     * @param task the task to be queued.
+     */
+    void addTask(Runnable task) {
+        tasksQueued(1);
+        try {
+            enqueue(task instanceof QueuedTask ? task : toQueued(task));
+        } catch (RuntimeException e) {
+            tasksFinished(1);
+            throw e;
+        }
+        TaskEvents.taskQueued(getName());
+    }
+
+    /**
+     * Counts the task as in flight and adds it to the lane of the key, queues
+     * the lane if the task has created it.
+     *
+     * @param key the key of the lane.
+     * @param task the task.
+     */
+    private void addToLane(Object key, Runnable task) {
+        tasksQueued(1);
+        KeyedLanes.Lane lane = lanes.add(key, task);
+        if (lane == null) {
+            // runs after the tasks which are ahead of it in the lane.
+            return;
+        }
+        try {
+            enqueueLane(lane);
+        } catch (RuntimeException e) {
+            discardLane(lane);
+            throw e;
+        }
+    }
+
+    /**
+     * Queues the first run of a lane, the tasks of the lane are counted as
+     * in flight already.
+     *
+     * @param lane the lane.
+     */
+    private void enqueueLane(KeyedLanes.Lane lane) {
+        enqueue(toQueued(lane));
+        TaskEvents.taskQueued(getName());
+        start();
+    }
+
+    /**
+     * Queues the next run of a lane after a task of the lane is finished.
+     * The running thread never waits for space in the queue, so the threads
+     * can not block each other while they run lanes: a worker keeps the
+     * lane in its local tasks if the queue is full, unless the task has
+     * thrown to the worker which then exits, so another worker keeps it. Any
+     * other thread drops the rest of the lane.
+     *
+     * @param lane the lane.
+     * @param thrown {@code true} if the task has thrown to the thread.
+     */
+    void continueLane(KeyedLanes.Lane lane, boolean thrown) {
+        Runnable queued = toQueued(lane);
+        if (!getTasks().offer(queued)) {
+            Worker worker = currentWorker();
+            if (worker != null && !thrown) {
+                worker.pushLocalTask(queued);
+            } else if (worker == null || !handOver(queued, worker)) {
+                discardLane(lane);
+                return;
+            }
+        }
+        TaskEvents.taskQueued(getName());
+        start();
+    }
+
+    /**
+     * Drops the tasks of a lane which will never run and cancels the ones
+     * which are {@link Future}.
+     *
+     * @param lane the lane.
+     */
+    private void discardLane(KeyedLanes.Lane lane) {
+        List<Runnable> dropped = new ArrayList<>();
+        lane.discard(dropped);
+        for (Runnable task : dropped) {
+            if (task instanceof Future) {
+                ((Future<?>) task).cancel(false);
+            }
+        }
+        tasksFinished(dropped.size());
+    }
+
+    /**
+     * Replaces the queued lanes with their tasks.
+     */
+    @Override
+    protected List<Runnable> removeQueuedTasks(Collection<Worker> workers) {
+        List<Runnable> removed = super.removeQueuedTasks(workers);
+        if (lanes.isEmpty()) {
+            return removed;
+        }
+        List<Runnable> tasks = new ArrayList<>(removed.size());
+        for (Runnable task : removed) {
+            Runnable unwrapped = QueuedTask.unwrap(task);
+            if (unwrapped instanceof KeyedLanes.Lane) {
+                ((KeyedLanes.Lane) unwrapped).discard(tasks);
+            } else {
+                tasks.add(task);
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * @return count of the lanes which have a queued or running task.
+     */
+    int getLaneCount() {
+        return lanes.size();
+    }
+
+    /**
+     * Counts the task as in flight and queues it by {@link #enqueueFork}.
+     *
+     * @param task the forked task.
+     * @return the task as it is queued.
+     * @see ForkTask#fork()
+     */
+    QueuedTask fork(Runnable task) {
+        beforeExecution(task);
+        QueuedTask queued = wrap(task);
+        tasksQueued(1);
+        try {
+            enqueueFork(queued, currentWorker());
+        } catch (RuntimeException e) {
+            tasksFinished(1);
+            throw e;
+        }
+        TaskEvents.taskQueued(getName());
+        start();
+        return queued;
+    }
+
+    /**
+     * Adds a forked task to the queue of tasks. A worker never waits for
+     * space in its own queue, so it keeps the task in its local tasks if the
+     * queue is full, it runs the task when it joins it anyway. The forks of
+     * a worker never go to a ring buffer, a task which is taken back from
+     * the ring still takes up its slot until a consumer skips it, so the
+     * joins would fill the ring.
+     * <br>
+     * Note: to be override in subclasses which keep a local stack of tasks
+     * for each worker.
+     *
+     * @param task the forked task.
+     * @param worker the worker which forks the task or {@code null}.
+     */
+    protected void enqueueFork(QueuedTask task, Worker worker) {
+        if (worker == null) {
+            enqueue(task);
+        } else if (getTasks() instanceof RingBufferQueue || !getTasks().offer(task)) {
+            worker.pushForkedTask(task);
+        }
+    }
+
+    /**
+     * Runs the forked task in the current worker if it is still queued,
+     * otherwise runs the pending forked tasks of the worker while the task
+     * runs on another thread. Other threads just wait, they can not run
+     * the subtasks in parallel.
+     *
+     * @param task the forked task as it is queued.
+     * @param future the future of the task.
+     * @see ForkTask#join()
+     */
+    void join(QueuedTask task, Future<?> future) {
+        Worker worker = currentWorker();
+        if (worker == null) {
+            return;
+        }
+        if (unfork(task, worker)) {
+            worker.runNested(task);
+            return;
+        }
+        Runnable next;
+        while (!future.isDone() && (next = worker.pollForkedTask()) != null) {
+            worker.runNested(next);
+        }
+    }
+
+    /**
+     * Removes the forked task from the local tasks of the worker, the
+     * queue of tasks or the local tasks of any other worker, a batch might
+     * have moved it there.
+     *
+     * @return {@code true} if the task is removed.
+     */
+    private boolean unfork(QueuedTask task, Worker worker) {
+        if (worker.removeLocalTask(task)) {
+            return true;
+        }
+        if (getTasks().remove(task)) {
+            return true;
+        }
+        for (Worker other : getThreads()) {
+            if (other != worker && other.removeLocalTask(task)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public <V> V invoke(ForkTask<V> task) {
+        beforeExecution(task);
+        task.forkOn(this);
+        return currentWorker() != null ? task.join() : task.awaitResult();
+    }
+
+    /**
+     * Counts the tasks as in flight at once and adds them to the queue of
+     * tasks. If a task can not be queued the rest of the batch is dropped.
+     *
+     * @param batch the tasks to be queued.
+     */
+    private void addTasks(List<Runnable> batch) {
+        tasksQueued(batch.size());
+        int queued = 0;
+        try {
+            for (Runnable task : batch) {
+                enqueue(toQueued(task));
+                queued++;
+                TaskEvents.taskQueued(getName());
+            }
+        } catch (RuntimeException e) {
+            tasksFinished(batch.size() - queued);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the worker of this executor which is running the current
+     * thread, if there is any.
+     *
+     * @return the current worker or {@code null}.
+     */
+    protected Worker currentWorker() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof Worker && ((Worker) thread).getExecutor() == this) {
+            return (Worker) thread;
+        }
+        return null;
+    }
+
     /**
      * Runs after submit of a task.
      * 
@@ -252,6 +1023,72 @@ abstract class ExecuteHandler extends ExecutorManager {
     protected void start() {
     }
 
+    /**
+     * Runs after submit of a batch of tasks, wakes up workers for at most
+     * {@code count} tasks.
+     *
+     * Note: to be override in subclasses if needed.
+     *
+     * @param count count of the submitted tasks.
+     */
+    protected void start(int count) {
+        for (int i = 0; i < count; i++) {
+            start();
+        }
+    }
+
+    /**
+     * Hands the local tasks of the exited worker back to the other workers,
+     * a worker which exits because its task has thrown might hold a batch
+     * of tasks that no other worker can reach. The local tasks of the
+     * workers which are killed by {@link #shutdownNow()} are returned by it.
+     */
+    @Override
+    void workerExited(Worker worker) {
+        super.workerExited(worker);
+        if (isShutdownNow() || worker.getLocalQueueSize() == 0) {
+            return;
+        }
+        List<Runnable> orphans = new ArrayList<>();
+        worker.drainLocalTasks(orphans);
+        for (Runnable task : orphans) {
+            if (!handOver(task, worker)) {
+                discard(task);
+            }
+        }
+        start(orphans.size());
+        // shutdownNow might have removed the queued tasks meanwhile.
+        if (isShutdownNow()) {
+            for (Runnable task : orphans) {
+                if (getTasks().remove(task)) {
+                    discard(task);
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues a task which is taken already, without waiting for space in
+     * the queue: if the queue is full the task goes to the local tasks of
+     * another live worker.
+     *
+     * @param task the task.
+     * @param except the worker which can not take the task.
+     * @return {@code false} if there is no other live worker to take it.
+     */
+    private boolean handOver(Runnable task, Worker except) {
+        if (getTasks().offer(task)) {
+            return true;
+        }
+        for (Worker worker : getThreads()) {
+            if (worker != except && !worker.isDead() && !worker.isRetired() && !worker.isDone()) {
+                worker.pushLocalTask(task);
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * created and run worker threads.
      */
@@ -261,13 +1098,57 @@ abstract class ExecuteHandler extends ExecutorManager {
         }
     }
 
+    /**
+     * Starts new workers or retires the workers which are not needed
+     * anymore, the idle ones first.
+     * <br>
+     * Note: to be override in subclasses which do not have a fixed count of
+     * workers.
+     */
+    @Override
+    public synchronized void setPoolSize(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size can not be zero or less.");
+        }
+        if (isShutdown()) {
+            throw new IllegalStateException("Executor is shutdown.");
+        }
+        List<Worker> active = new ArrayList<>();
+        for (Worker worker : getThreads()) {
+            if (!worker.isRetired() && !worker.isDone()) {
+                active.add(worker);
+            }
+        }
+        int diff = size - active.size();
+        if (diff > 0) {
+            addThreadCount(diff);
+            for (int i = 0; i < diff; i++) {
+                createAndStartWorker();
+            }
+            return;
+        }
+        int excess = -diff;
+        // idle workers first, busy ones retire after their current task.
+        for (int pass = 0; pass < 2 && excess > 0; pass++) {
+            for (Worker worker : active) {
+                if (excess > 0 && !worker.isRetired() && (pass == 1 || !worker.isBusy())) {
+                    worker.retire();
+                    worker.interruptIfIdle();
+                    excess--;
+                }
+            }
+        }
+    }
+
     /**
      * created and run a worker thread.
      */
     protected Worker createAndStartWorker() {
-        Worker worker = new Worker(getTasks());
+        Worker worker = new Worker(this);
+        worker.setName(getName() + "-worker-" + workerSequence.incrementAndGet());
         getThreads().add(worker);
         worker.start();
+        TaskEvents.workerStarted(getName(), worker);
         return worker;
     }
 
@@ -1,9 +1,21 @@
 package space.dastyar.lib.executorplus;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * ExecutorManager implements managing threads state and life-cycle
@@ -14,46 +26,176 @@ import java.util.concurrent.LinkedBlockingQueue;
  */
 abstract class ExecutorManager implements ExecutorPlus{
 
+    /**
+     * Count of created executors, used for the default {@link name}.
+     */
+    private static final AtomicInteger POOL_SEQUENCE = new AtomicInteger();
+
+    /**
+     * Name of the executor.
+     */
+    private volatile String name = "executorplus-" + POOL_SEQUENCE.incrementAndGet();
+
     /**
      * List of threads that are created to do the tasks.
      */
-    private List<Worker> threads=new ArrayList<>();
+    private volatile List<Worker> threads=new CopyOnWriteArrayList<>();
     
     /**
      * Queue of tasks that are to be executed.
      */
-    private BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Runnable> tasks;
     
     /**
      * Count of threads that are created or to create.
      */
-    private int threadCount;
+    private final AtomicInteger threadCount = new AtomicInteger();
     
     /**
-     * Indicates running state of threads within executors list.
-     * 
-     * @see Worker#waited 
+     * Closed while the executor is paused, all of the threads wait on it.
      */
-    private boolean pause=false;
+    private final PauseGate pauseGate = new PauseGate();
     
     /**
      * Indicates state of executors.
      * 
      * @see shutdown() 
      */
-    private boolean shutdown;
+    private volatile boolean shutdown;
     
     /**
      * Indicates state of executors and threads.
      * 
      * @see shutdownNow() 
      */
-    private boolean shutdownNow;
+    private volatile boolean shutdownNow;
+
+    /**
+     * Count of tasks which are queued or running.
+     */
+    private final AtomicLong inFlight = new AtomicLong();
+
+    /**
+     * Guards {@link idle}.
+     */
+    private final ReentrantLock idleLock = new ReentrantLock();
+
+    /**
+     * Signaled when {@link inFlight} reaches zero.
+     */
+    private final Condition idle = idleLock.newCondition();
+
+    /**
+     * Futures to be completed when {@link inFlight} reaches zero.
+     *
+     * @see onIdle()
+     */
+    private final Queue<CompletableFuture<Void>> idleFutures = new ConcurrentLinkedQueue<>();
+
+
+    /**
+     * Count of tasks which are accepted for execution.
+     */
+    private final LongAdder submitted = new LongAdder();
+
+    /**
+     * Statistics of the workers which have exited.
+     */
+    private final TaskRecorder retired = new TaskRecorder();
+
+    /**
+     * The MBean of this executor, registered while it is not shut down.
+     */
+    private final ExecutorPlusJmx jmx = new ExecutorPlusJmx(this);
 
+    /**
+     * Maximum count of tasks that a worker takes from {@link tasks} at once,
+     * {@code 1} disables batching.
+     */
+    private volatile int maxBatchSize = 1;
+
+    /**
+     * Maximum run time of the tasks that a worker keeps in a batch, longer
+     * tasks are not batched.
+     */
+    private static final long BATCH_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * Count of polls that an idle worker spins for before it yields,
+     * {@code 0} disables spinning.
+     */
+    private volatile int spins;
+
+    /**
+     * Count of polls that an idle worker yields between, after spinning and
+     * before it parks.
+     */
+    private volatile int yields;
+
+    /**
+     * Maximum count of workers which spin or yield at once.
+     */
+    private volatile int maxSpinners;
+
+    /**
+     * Count of workers which spin or yield right now.
+     */
+    private final AtomicInteger spinners = new AtomicInteger();
+
+    /**
+     * Limits the rate that the workers start tasks at, disabled by default.
+     */
+    private final RateLimiter rateLimiter = new RateLimiter();
+
+    ExecutorManager() {
+        this(new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * @param tasks the queue of tasks, which might be bounded.
+     */
+    ExecutorManager(BlockingQueue<Runnable> tasks) {
+        this.tasks = tasks;
+    }
+
+    /**
+     * Registers the {@link ExecutorPlusMXBean} of a new executor, once its
+     * constructors have run so the MBean server never reaches a partly
+     * constructed executor.
+     *
+     * @param executor the new executor.
+     * @param <T> the type of the executor.
+     * @return the executor.
+     */
+    static <T extends ExecutorManager> T monitor(T executor) {
+        executor.getJmx().register();
+        return executor;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setName(String name) {
+        if (name == null) {
+            throw new NullPointerException("Name can not be null!");
+        }
+        this.name = name;
+        if (!shutdown) {
+            jmx.register();
+        }
+    }
+
+    @Override
+    public boolean isMBeanRegistered() {
+        return jmx.getObjectName() != null;
+    }
 
     @Override
     public int getThreadCount() {
-        return threadCount;
+        return threadCount.get();
     }
 
     /**
@@ -61,7 +203,28 @@ abstract class ExecutorManager implements ExecutorPlus{
      * @see threadCount
      */
     void setThreadCount(int threadCount) {
-        this.threadCount = threadCount;
+        this.threadCount.set(threadCount);
+    }
+
+    /**
+     * Atomically adds the given value to {@link threadCount}.
+     *
+     * @return the updated value.
+     * @see threadCount
+     */
+    int addThreadCount(int delta) {
+        return threadCount.addAndGet(delta);
+    }
+
+    /**
+     * Atomically sets {@link threadCount} to the updated value if it
+     * equals to the expected value.
+     *
+     * @return {@code true} if successful.
+     * @see threadCount
+     */
+    boolean compareAndSetThreadCount(int expect, int update) {
+        return threadCount.compareAndSet(expect, update);
     }
 
     /**
@@ -73,14 +236,318 @@ abstract class ExecutorManager implements ExecutorPlus{
         return tasks;
     }
 
+    /**
+     * Takes the next task by {@link #takeTask} within the rate limit. The
+     * worker reserves a permit before it takes the task and waits for the
+     * next permit if there is none, so it holds no task out of the queues
+     * and runs nothing while it waits. The permit goes back to the bucket if
+     * the worker gets no task.
+     * <br>
+     * Note: to be override in subclasses which record the tasks when they
+     * are taken.
+     *
+     * @param worker the worker which asks for a task.
+     * @return next task or {@code null} if the worker should stop.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    Runnable nextTask(Worker worker) throws InterruptedException {
+        boolean reserved = rateLimiter.acquire();
+        Runnable task = null;
+        try {
+            task = takeTask(worker);
+        } finally {
+            if (reserved) {
+                rateLimiter.release(task != null);
+            } else if (task != null) {
+                // the limit might be enabled while the worker was waiting.
+                rateLimiter.charge();
+            }
+        }
+        return task;
+    }
+
+    /**
+     * Takes the next task for the worker, first from its local tasks
+     * and then from {@link tasks}.
+     * <br>
+     * Note: to be override in subclasses if needed.
+     *
+     * @param worker the worker which asks for a task.
+     * @return next task or {@code null} if the worker should stop.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    Runnable takeTask(Worker worker) throws InterruptedException {
+        Runnable task = worker.pollLocalTask();
+        if (task == null && !worker.isRetired()) {
+            task = spinForTask(worker, tasks::poll);
+            if (task == null) {
+                task = tasks.take();
+            }
+            drainBatch(worker);
+        }
+        return task;
+    }
+
+    /**
+     * Polls for a task before an idle worker parks: {@link spins} times in a
+     * busy loop and then {@link yields} times yielding between the polls, so
+     * a task which is queued meanwhile is handed over without waking up a
+     * parked thread. Only {@link maxSpinners} workers spin at once, the rest
+     * park right away.
+     *
+     * @param worker the idle worker.
+     * @param poll polls for a task without waiting.
+     * @return the task or {@code null} if the worker should park.
+     */
+    Runnable spinForTask(Worker worker, Supplier<Runnable> poll) {
+        int spinCount = spins;
+        int total = spinCount + yields;
+        if (total == 0 || !acquireSpinner()) {
+            return null;
+        }
+        try {
+            for (int i = 0; i < total; i++) {
+                Runnable task = poll.get();
+                if (task != null) {
+                    return task;
+                }
+                // the interrupt is handled by the caller.
+                if (worker.isInterrupted() || worker.isRetired() || worker.isDead()) {
+                    return null;
+                }
+                if (i >= spinCount) {
+                    Thread.yield();
+                }
+            }
+            return null;
+        } finally {
+            spinners.decrementAndGet();
+        }
+    }
+
+    /**
+     * Counts the current worker as a spinner if fewer than
+     * {@link maxSpinners} workers spin.
+     *
+     * @return {@code true} if the worker may spin.
+     */
+    private boolean acquireSpinner() {
+        while (true) {
+            int count = spinners.get();
+            if (count >= maxSpinners) {
+                return false;
+            }
+            if (spinners.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Moves the rest of a batch from {@link tasks} to the local deque of the
+     * worker, after the worker has taken a task. The batch is limited by
+     * {@link maxBatchSize}, by the share of the worker from the queued tasks
+     * and by the count of tasks that run in {@link BATCH_NANOS}.
+     *
+     * @param worker the worker which takes the batch.
+     */
+    void drainBatch(Worker worker) {
+        int max = maxBatchSize;
+        if (max <= 1) {
+            return;
+        }
+        // a fair share of the queue, so the other workers are not starved.
+        int size = Math.min(max, tasks.size() / Math.max(1, threads.size()) + 1);
+        long average = worker.getAverageTaskNanos();
+        if (average > 0) {
+            size = (int) Math.min(size, BATCH_NANOS / average);
+        }
+        if (size > 1) {
+            worker.drainTasks(tasks, size - 1);
+        }
+    }
+
+    /**
+     * Runs when a worker has finished working and removes it from
+     * {@link threads}, a retired worker is not counted anymore.
+     *
+     * @param worker the finished worker.
+     */
+    void workerExited(Worker worker) {
+        // merged and removed under the lock of collectStats, so the worker
+        // is counted exactly once.
+        synchronized (retired) {
+            retired.add(worker.getRecorder());
+            threads.remove(worker);
+        }
+        if (worker.isRetired()) {
+            threadCount.decrementAndGet();
+        }
+        TaskEvents.workerExited(name, worker);
+    }
+
+    /**
+     * Adds the statistics of the workers to the given recorder and the
+     * statistics of each live worker to the given list.
+     * <br>
+     * Note: to be override in subclasses which run tasks out of workers.
+     *
+     * @param total receives the statistics of all of the tasks.
+     * @param workers receives the statistics of each live worker.
+     */
+    void collectStats(TaskRecorder total, List<WorkerStats> workers) {
+        synchronized (retired) {
+            total.add(retired);
+            for (Worker thread : threads) {
+                TaskRecorder recorder = thread.getRecorder();
+                total.add(recorder);
+                workers.add(recorder.toWorkerStats(thread.getName()));
+            }
+        }
+    }
+
+    /**
+     *
+     * @return count of tasks which are accepted for execution.
+     * @see submitted
+     */
+    long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /**
+     * Cheaper than {@link getStats()}, the tasks which are removed from the
+     * queue are counted too.
+     *
+     * @return count of accepted tasks which are not queued or running.
+     */
+    long getFinishedCount() {
+        return submitted.sum() - inFlight.get();
+    }
+
+    /**
+     *
+     * @return {@link inFlight}
+     */
+    long getInFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * Adds the count of newly queued tasks to {@link inFlight}, must be
+     * called before the tasks are queued.
+     *
+     * @param count count of tasks.
+     */
+    void tasksQueued(int count) {
+        inFlight.addAndGet(count);
+        submitted.add(count);
+    }
+
+    /**
+     * Subtracts the count of finished or removed tasks from
+     * {@link inFlight} and wakes up the waiters when it reaches zero.
+     *
+     * @param count count of tasks.
+     */
+    void tasksFinished(int count) {
+        if (count > 0 && inFlight.addAndGet(-count) == 0) {
+            signalIdle();
+        }
+    }
+
+    /**
+     * Runs after a worker has finished running a task.
+     *
+     * @param worker the worker which has run the task.
+     * @param task the finished task.
+     * @param thrown the exception which is thrown by the task or
+     * {@code null} if the task has finished normally, the worker exits if
+     * it is not {@code null}.
+     */
+    void afterExecute(Worker worker, Runnable task, Throwable thrown) {
+        tasksFinished(1);
+    }
+
+    /**
+     * Wakes up all of the threads which are waiting for the executor to
+     * become idle.
+     */
+    private void signalIdle() {
+        idleLock.lock();
+        try {
+            idle.signalAll();
+        } finally {
+            idleLock.unlock();
+        }
+        CompletableFuture<Void> future;
+        while ((future = idleFutures.poll()) != null) {
+            future.complete(null);
+        }
+    }
+
+    @Override
+    public void setMaxBatchSize(int maxBatchSize) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size can not be zero or less.");
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     *
+     * @see maxBatchSize
+     */
+    int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    @Override
+    public void setSpinWait(int spins, int yields, int maxSpinners) {
+        if (spins < 0 || yields < 0) {
+            throw new IllegalArgumentException("Spin count can not be negative.");
+        }
+        if (maxSpinners < 0) {
+            throw new IllegalArgumentException("Spinner count can not be negative.");
+        }
+        this.maxSpinners = maxSpinners;
+        this.yields = yields;
+        this.spins = spins;
+    }
+
+    /**
+     *
+     * @see spinners
+     */
+    int getSpinnerCount() {
+        return spinners.get();
+    }
+
+    @Override
+    public void setRateLimit(double tasksPerSecond, int burst) {
+        if (!(tasksPerSecond >= 0) || Double.isInfinite(tasksPerSecond)) {
+            throw new IllegalArgumentException("Rate can not be negative or infinite.");
+        }
+        if (tasksPerSecond > 0 && burst <= 0) {
+            throw new IllegalArgumentException("Burst can not be less than one.");
+        }
+        rateLimiter.setRate(tasksPerSecond, burst);
+    }
+
+    /**
+     *
+     * @return {@link rateLimiter}
+     */
+    RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
     @Override
     public boolean isBusy()  {
         if (shutdownNow) {
             return false;
         }
-        boolean busy = threads.stream().anyMatch(x -> x.isBusy());
-        busy = busy || tasks.size()>0;
-        return busy;
+        return inFlight.get() > 0;
     }
 
     /**
@@ -105,61 +572,155 @@ abstract class ExecutorManager implements ExecutorPlus{
 
     @Override
     public int getQueueSize() {
-        return tasks.size();
+        int size = tasks.size();
+        for (Worker thread : threads) {
+            size += thread.getLocalQueueSize();
+        }
+        return size;
     }
 
     @Override
     public void pause() {
-        if (pause) {
+        if (!pauseGate.close()) {
             throw new IllegalStateException("Executor is already pause.");
         }
-        threads.forEach((thread)
-                -> thread.setWaited(true)
-        );
-        pause=true;
+        TaskEvents.paused(name);
     }
 
     @Override
     public void resume() {
-        if (!pause) {
+        if (!pauseGate.open()) {
             throw new IllegalStateException("Executor is not pause.");
         }
-        threads.forEach((thread)
-                -> thread.setWaited(false)
+        TaskEvents.resumed(name);
+    }
+
+    @Override
+    public void awaitPaused() throws InterruptedException {
+        if (!pauseGate.isClosed()) {
+            throw new IllegalStateException("Executor is not pause.");
+        }
+        pauseGate.awaitDrained(this::hasRunningTasks, false, 0L);
+    }
+
+    @Override
+    public boolean awaitPaused(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!pauseGate.isClosed()) {
+            throw new IllegalStateException("Executor is not pause.");
+        }
+        return pauseGate.awaitDrained(this::hasRunningTasks, true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Checks whether any thread is running a task, it is only called by
+     * {@link awaitPaused()} so it may take linear time.
+     * <br>
+     * Note: to be override in subclasses if needed.
+     */
+    boolean hasRunningTasks() {
+        for (Worker thread : threads) {
+            if (thread.isBusy()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all of the queued tasks, including the local tasks of the
+     * workers.
+     * <br>
+     * Note: to be override in subclasses which queue several tasks as one.
+     *
+     * @param workers the workers to remove the local tasks of.
+     * @return the removed tasks, each one counted as in flight.
+     */
+    protected List<Runnable> removeQueuedTasks(Collection<Worker> workers) {
+        List<Runnable> removed = new ArrayList<>();
+        tasks.drainTo(removed);
+        workers.forEach((thread)
+                -> thread.drainLocalTasks(removed)
         );
-        pause=false;
+        return removed;
     }
 
     @Override
     public void clear() {
-        tasks.clear();
+        List<Runnable> removed = removeQueuedTasks(threads);
+        tasksFinished(removed.size());
     }
 
     @Override
     public void shutdown() {
         shutdown = true;
+        jmx.unregister();
         threads.forEach((thread)
                 -> thread.shutdown()
         );
-        threads.clear();
     }
 
     @Override
     public List<Runnable> shutdownNow() {
         shutdown = true;
         shutdownNow = true;
-        threads.forEach((thread)
+        jmx.unregister();
+        // killed workers might exit and leave threads before their local
+        // tasks are removed.
+        List<Worker> killed = new ArrayList<>(threads);
+        killed.forEach((thread)
                 -> thread.kill()
         );
+        List<Runnable> removed = removeQueuedTasks(killed);
         threads.clear();
-        return new ArrayList<>(tasks);
+        tasksFinished(removed.size());
+        signalIdle();
+        List<Runnable> remaining = new ArrayList<>(removed.size());
+        for (Runnable task : removed) {
+            remaining.add(QueuedTask.unwrap(task));
+        }
+        return remaining;
     }
 
     @Override
     public void waitToFinish() {
-        do {
-            waitFor(2100);
-        } while (this.isBusy());
+        idleLock.lock();
+        try {
+            while (isBusy()) {
+                idle.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean waitToFinish(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        idleLock.lock();
+        try {
+            while (isBusy()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = idle.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> onIdle() {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        idleFutures.add(future);
+        // the executor might have become idle before the future was added.
+        if (!isBusy()) {
+            signalIdle();
+        }
+        return future;
     }
 
     protected void setThreads(List<Worker> threads) {
@@ -170,4 +731,28 @@ abstract class ExecutorManager implements ExecutorPlus{
         return shutdown;
     }
 
+    protected boolean isShutdownNow() {
+        return shutdownNow;
+    }
+
+    protected boolean isPaused() {
+        return pauseGate.isClosed();
+    }
+
+    /**
+     *
+     * @see pauseGate
+     */
+    PauseGate getPauseGate() {
+        return pauseGate;
+    }
+
+    /**
+     *
+     * @see jmx
+     */
+    ExecutorPlusJmx getJmx() {
+        return jmx;
+    }
+
 }
@@ -3,11 +3,13 @@ package space.dastyar.lib.executorplus;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -51,7 +53,7 @@ public interface ExecutorPlus extends Executor {
      * @throws NullPointerException if the task is null
      * @since 0.01
      */
-    public Future<?> submit(Runnable task);
+    public ListenableFuture<?> submit(Runnable task);
 
     /**
      * Submits a Runnable task for execution and returns a Future representing
@@ -66,7 +68,7 @@ public interface ExecutorPlus extends Executor {
      * execution
      * @throws NullPointerException if the task is null
      */
-    public <T> Future<T> submit(Runnable task, T result);
+    public <T> ListenableFuture<T> submit(Runnable task, T result);
 
     /**
      * Submits a value-returning task for execution and returns a Future
@@ -84,7 +86,206 @@ public interface ExecutorPlus extends Executor {
      * execution
      * @throws NullPointerException if the task is null
      */
-    public <T> Future<T> submit(Callable<T> task);
+    public <T> ListenableFuture<T> submit(Callable<T> task);
+
+    /**
+     * Executes the task in the lane of the key, the tasks of a key run one
+     * after another in the order of submission while the tasks of different
+     * keys run in parallel on the threads of this executor.<br>
+     * A lane is created by the first task of its key and removed after its
+     * last task. Only the next task of a lane is in the queue, so
+     * {@link #getQueueSize()} counts each lane as one task.
+     * A task which throws an exception does not stop the lane.
+     *
+     * @param key the key of the lane, compared by {@code equals}
+     * @param task the task to execute
+     * @throws RejectedExecutionException if the task cannot be scheduled for
+     * execution
+     * @throws NullPointerException if the key or the task is null
+     */
+    public void execute(Object key, Runnable task);
+
+    /**
+     * Submits a value-returning task for execution in the lane of the key
+     * and returns a Future representing the pending results of the task.
+     *
+     * @param key the key of the lane, compared by {@code equals}
+     * @param task the task to submit
+     * @param <T> the type of the task's result
+     * @return a Future representing pending completion of the task
+     * @throws RejectedExecutionException if the task cannot be scheduled for
+     * execution
+     * @throws NullPointerException if the key or the task is null
+     * @see #execute(Object, Runnable)
+     */
+    public <T> ListenableFuture<T> submit(Object key, Callable<T> task);
+
+    /**
+     * Submits a Runnable task for execution and returns a
+     * {@link CompletableFuture} which completes with {@code null} when the
+     * task completes normally, or exceptionally with the exception which
+     * is thrown by the task.<br>
+     * Dependent stages which are attached without an executor run in the
+     * thread that completes the future, a worker of this executor.
+     * Cancelling the returned future does not interrupt the task if it is
+     * already running, but it prevents the task from running if it is
+     * still queued.
+     *
+     * @param task the task to submit
+     * @return a CompletableFuture representing pending completion of the task
+     * @throws RejectedExecutionException if the task cannot be scheduled for
+     * execution
+     * @throws NullPointerException if the task is null
+     */
+    public CompletableFuture<Void> submitAsync(Runnable task);
+
+    /**
+     * Submits a value-returning task for execution and returns a
+     * {@link CompletableFuture} which completes with the task's result, or
+     * exceptionally with the exception which is thrown by the task.
+     * The same notes of {@link #submitAsync(Runnable)} apply.
+     *
+     * @param task the task to submit
+     * @param <T> the type of the task's result
+     * @return a CompletableFuture representing pending completion of the task
+     * @throws RejectedExecutionException if the task cannot be scheduled for
+     * execution
+     * @throws NullPointerException if the task is null
+     */
+    public <T> CompletableFuture<T> submitAsync(Callable<T> task);
+
+    /**
+     * Executes the given tasks at some time in the future. The tasks are
+     * validated and queued together, in the order produced by the
+     * iterator of the collection, and the idle threads are woken up once
+     * for the whole batch, which is cheaper than calling
+     * {@link #execute(Runnable)} for each of them. The queue of the fixed
+     * and single thread pools still takes its lock and signals a waiting
+     * thread for each task, so they save less than the work-stealing,
+     * cached and virtual thread executors.
+     * If a task cannot be accepted, the tasks before it stay queued and
+     * the rest of them are not queued.
+     *
+     * @param tasks the collection of tasks
+     * @throws RejectedExecutionException if any task cannot be accepted for
+     * execution
+     * @throws NullPointerException if tasks or any of its elements are
+     * {@code null}
+     */
+    public void executeAll(Collection<? extends Runnable> tasks);
+
+    /**
+     * Submits the given tasks for execution and returns a list of Futures
+     * representing them, without waiting for them to complete. The tasks
+     * are validated and queued together like {@link #executeAll(Collection)}.
+     * If a task cannot be accepted, the futures of all of the tasks are
+     * cancelled before the exception is thrown, so none of them runs.
+     *
+     * @param tasks the collection of tasks
+     * @param <T> the type of the values returned from the tasks
+     * @return a list of Futures representing the tasks, in the same
+     *         sequential order as produced by the iterator for the
+     *         given task list
+     * @throws RejectedExecutionException if any task cannot be accepted for
+     * execution
+     * @throws NullPointerException if tasks or any of its elements are
+     * {@code null}
+     */
+    public <T> List<Future<T>> submitAll(Collection<? extends Callable<T>> tasks);
+
+    /**
+     * Submits a one-shot task that becomes enabled after the given delay.
+     * When the task is due it is queued like a task passed to
+     * {@link #execute(Runnable)}, except that a task which finds the queue
+     * full is tried again on the next millisecond under
+     * {@link SaturationPolicy#BLOCK} and {@link SaturationPolicy#CALLER_RUNS},
+     * so the timer never waits for space or runs a task itself.<br>
+     * Scheduled tasks wait in a timing wheel with a resolution of one
+     * millisecond, so scheduling and cancelling take constant time whatever
+     * the count of scheduled tasks is. A waiting task counts as a queued
+     * task for {@link #isBusy()} and {@link #waitToFinish()}, and is
+     * cancelled by {@link #shutdown()} and {@link #shutdownNow()} if it is
+     * not due yet.
+     *
+     * @param task the task to execute
+     * @param delay the time from now to delay execution
+     * @param unit the time unit of the delay parameter
+     * @return a ScheduledFuture representing pending completion of
+     *         the task and whose {@code get()} method will return
+     *         {@code null} upon completion
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @throws NullPointerException if task or unit is null
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit);
+
+    /**
+     * Submits a value-returning one-shot task that becomes enabled
+     * after the given delay, see {@link #schedule(Runnable, long, TimeUnit)}.
+     *
+     * @param task the function to execute
+     * @param delay the time from now to delay execution
+     * @param unit the time unit of the delay parameter
+     * @param <V> the type of the task's result
+     * @return a ScheduledFuture that can be used to extract result or cancel
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @throws NullPointerException if task or unit is null
+     */
+    public <V> ScheduledFuture<V> schedule(Callable<V> task, long delay, TimeUnit unit);
+
+    /**
+     * Submits a periodic task that becomes enabled first after the given
+     * initial delay, and subsequently with the given period; that is,
+     * executions will commence after {@code initialDelay}, then
+     * {@code initialDelay + period}, then {@code initialDelay + 2 * period},
+     * and so on. If an execution takes longer than its period, the next
+     * one is queued as soon as it is due, so executions may overlap when
+     * the executor has more than one thread.
+     * <br>
+     * The task repeats until it is cancelled, an execution throws an
+     * exception or the executor is shut down, and meanwhile
+     * {@link #waitToFinish()} does not return.
+     *
+     * @param task the task to execute
+     * @param initialDelay the time to delay first execution
+     * @param period the period between successive executions
+     * @param unit the time unit of the initialDelay and period parameters
+     * @return a ScheduledFuture representing pending completion of
+     *         the series of repeated tasks, its {@code get()} method never
+     *         returns normally
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @throws NullPointerException if task or unit is null
+     * @throws IllegalArgumentException if period less than or equal to zero
+     */
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period,
+            TimeUnit unit);
+
+    /**
+     * Submits a periodic task that becomes enabled first after the given
+     * initial delay, and subsequently with the given delay between the
+     * termination of one execution and the commencement of the next.
+     * <br>
+     * The task repeats until it is cancelled, an execution throws an
+     * exception or the executor is shut down, and meanwhile
+     * {@link #waitToFinish()} does not return.
+     *
+     * @param task the task to execute
+     * @param initialDelay the time to delay first execution
+     * @param delay the delay between the termination of one
+     *        execution and the commencement of the next
+     * @param unit the time unit of the initialDelay and delay parameters
+     * @return a ScheduledFuture representing pending completion of
+     *         the series of repeated tasks, its {@code get()} method never
+     *         returns normally
+     * @throws RejectedExecutionException if the task cannot be
+     *         scheduled for execution
+     * @throws NullPointerException if task or unit is null
+     * @throws IllegalArgumentException if delay less than or equal to zero
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long initialDelay, long delay,
+            TimeUnit unit);
 
     /**
      * Executes the given tasks, returning the result
@@ -138,6 +339,42 @@ public interface ExecutorPlus extends Executor {
     public <T> T invokAny(Collection<? extends Callable<T>> tasks,long timeout,TimeUnit unit) 
             throws ExecutionException, InterruptedException, TimeoutException;
 
+    /**
+     * Creates a fail-fast group of tasks which run in this executor, the
+     * group is waited for and cancelled apart from the other tasks.
+     *
+     * @return the new group
+     * @see TaskGroup
+     */
+    public TaskGroup newTaskGroup();
+
+    /**
+     * Creates a group of tasks which run in this executor, the group is
+     * waited for and cancelled apart from the other tasks.
+     *
+     * @param failFast {@code true} if the rest of the tasks of the group
+     * should be cancelled as soon as one of them throws an exception
+     * @return the new group
+     * @see TaskGroup
+     */
+    public TaskGroup newTaskGroup(boolean failFast);
+
+    /**
+     * Runs the given task, which may fork subtasks, and returns its result
+     * when it is done. A thread of the executor runs the task by itself if
+     * no other thread has taken it yet, any other thread waits for the
+     * result.
+     *
+     * @param task the task
+     * @param <V> the type of the result
+     * @return the result of the task
+     * @throws NullPointerException if task is {@code null}
+     * @throws RejectedExecutionException if the executor is shutdown
+     * @throws java.util.concurrent.CancellationException if the task is cancelled
+     * @see ForkTask
+     */
+    public <V> V invoke(ForkTask<V> task);
+
     /**
      * Executes the given tasks, returning a list of Futures holding
      * their status and results when all complete.
@@ -148,6 +385,8 @@ public interface ExecutorPlus extends Executor {
      * and this method uses an unmodifiable copy of collection, 
      * so consider memory overhead and also changing the collection
      * after its submitted wont effect the queue of tasks.
+     * If the calling thread is interrupted while waiting, tasks that have
+     * not completed are cancelled and the interrupt status is kept.
      *
      * @param tasks the collection of tasks
      * @param <T> the type of the values returned from the tasks
@@ -172,7 +411,8 @@ public interface ExecutorPlus extends Executor {
      * and this method uses an unmodifiable copy of collection, 
      * so consider memory overhead and also changing the collection
      * after its submitted wont effect the queue of tasks.
-     *
+     * If the calling thread is interrupted while waiting, tasks that have
+     * not completed are cancelled and the interrupt status is kept.
      *
      * @param tasks the collection of tasks
      * @param timeout the maximum time to wait
@@ -182,7 +422,7 @@ public interface ExecutorPlus extends Executor {
      *         sequential order as produced by the iterator for the
      *         given task list. If the operation did not time out,
      *         each task will have completed. If it did time out, some
-     *         of these tasks will not have completed.
+     *         of these tasks will have been cancelled.
      * @throws NullPointerException if tasks, any of its elements, or
      *         unit are {@code null}
      * @throws RejectedExecutionException if any task cannot be scheduled
@@ -193,6 +433,8 @@ public interface ExecutorPlus extends Executor {
     /**
      * Checks that there is any working thread and if finds a running task
      * within a thread or queued task returns {@code true} otherwise {@code false}. <br>
+     * The executor keeps count of queued and running tasks, so this method
+     * takes constant time whatever the size of the pool is.
      * <p>
      * Note: after calling {@link shutdownNow()} always returns {@code false}
      * whether there is any running task or note.
@@ -203,15 +445,45 @@ public interface ExecutorPlus extends Executor {
 
     /**
      * All threads after finish their current tasks wont do any other task until
-     * {@link resume()} gets called.
+     * {@link resume()} gets called. It takes effect right away for the tasks
+     * which are not started yet, even the ones which a thread has already
+     * taken from the queue, and takes constant time whatever the size of the
+     * pool is.
      *
      * @throws IllegalStateException If executor is already paused.
      * @see resume()
+     * @see awaitPaused()
      */
     public void pause();
 
     /**
-     * All threads that are on {@link pause()} start to do the tasks.
+     * Blocks until none of the tasks which were running when the executor
+     * was paused is running anymore, or the executor is resumed.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws IllegalStateException If executor is not paused.
+     * @see pause()
+     */
+    public void awaitPaused() throws InterruptedException;
+
+    /**
+     * Blocks until none of the tasks which were running when the executor
+     * was paused is running anymore, or the executor is resumed, or the
+     * timeout occurs, whichever happens first.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout argument
+     * @return {@code true} if the executor is paused and no task is running
+     * and {@code false} if the executor is resumed or the timeout elapsed
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws IllegalStateException If executor is not paused.
+     * @see pause()
+     */
+    public boolean awaitPaused(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * All threads that are on {@link pause()} start to do the tasks, they
+     * are woken up at once.
      *
      * @throws IllegalStateException If executor is not paused.
      * @see pause()
@@ -226,7 +498,8 @@ public interface ExecutorPlus extends Executor {
     /**
      * Initiates an orderly shutdown in which previously submitted tasks are
      * executed, but no new tasks will be accepted. Invocation has no additional
-     * effect if already shut down.
+     * effect if already shut down. Scheduled tasks which are not due yet are
+     * cancelled.
      *
      * <p>
      * This method does not wait for previously submitted tasks to complete
@@ -251,7 +524,8 @@ public interface ExecutorPlus extends Executor {
      * cancel via {@link Thread#interrupt()}, so any task that fails to respond to
      * interrupts may never terminate.
      *
-     * @return list of tasks that never commenced execution
+     * @return list of tasks that never commenced execution, scheduled tasks
+     * which are not due yet are cancelled and not included
      */
     public List<Runnable> shutdownNow();
 
@@ -262,6 +536,145 @@ public interface ExecutorPlus extends Executor {
      */
     public int getQueueSize();
 
+    /**
+     * Sets the maximum count of tasks that a thread takes from the queue of
+     * tasks at once, which lowers the contention on the queue when tasks are
+     * very short. The thread runs the batch one by one, so pausing the
+     * executor still takes effect between the tasks of a batch, and the
+     * tasks of a batch are still counted by {@link #getQueueSize()} and
+     * removed by {@link #clear()} and {@link #shutdownNow()}.
+     * <br>
+     * The actual size of a batch adapts to the count of queued tasks and to
+     * the run time of the recent tasks of the thread, long tasks are not
+     * batched at all. Batching is disabled by default, which is the same as
+     * a maximum of {@code 1}. It has no effect on the cached thread pool
+     * and the virtual thread executor, which hand each task to an idle or a
+     * new thread.
+     *
+     * @param maxBatchSize maximum count of tasks taken at once.
+     * @throws IllegalArgumentException if {@code maxBatchSize <= 0}
+     */
+    public void setMaxBatchSize(int maxBatchSize);
+
+    /**
+     * Makes an idle thread poll for a new task for a while before it parks,
+     * because waking up a parked thread takes much longer than a handoff to
+     * a spinning one. The thread first polls {@code spins} times in a busy
+     * loop, then polls {@code yields} times yielding the CPU between the
+     * polls and then parks.
+     * <br>
+     * Spinning threads keep CPU cores busy, so at most {@code maxSpinners}
+     * threads spin at once and the other idle threads park right away.
+     * Spinning is disabled by default, which is the same as zero spins and
+     * yields. It has no effect on the virtual thread executor, which has no
+     * idle threads.
+     *
+     * @param spins count of polls in a busy loop.
+     * @param yields count of polls with yielding between them, after the
+     * spins.
+     * @param maxSpinners maximum count of threads which spin at once.
+     * @throws IllegalArgumentException if any of the arguments is negative.
+     */
+    public void setSpinWait(int spins, int yields, int maxSpinners);
+
+    /**
+     * Limits the rate that the threads start tasks at by a token bucket,
+     * which gains {@code tasksPerSecond} permits each second and stores up
+     * to {@code burst} of them while there is no task, so a burst of tasks
+     * after an idle period starts right away. A thread takes a task out of
+     * the queue only with a permit, so a thread which has no permit leaves
+     * the task in the queue and waits for the next permit, and
+     * {@link #clear()} and {@link #shutdownNow()} still remove the task. A
+     * cached thread pool does not create threads for the tasks which wait
+     * for permits, and a virtual thread executor starts a thread for a task
+     * only when it has a permit. A thread which is already waiting for a
+     * task when the limit is set takes its next task without a permit, that
+     * task is counted against the rate.
+     * <br>
+     * The limit can be changed at any time and the waiting threads follow
+     * the new rate right away. A rate of {@code 0} removes the limit, which
+     * is the default. See {@link ExecutorStats#getThrottledCount()} for how
+     * often the threads have waited.
+     *
+     * @param tasksPerSecond maximum average count of tasks which start per
+     * second or {@code 0} to remove the limit.
+     * @param burst maximum count of tasks which start at once.
+     * @throws IllegalArgumentException if {@code tasksPerSecond} is
+     * negative, or it is positive and {@code burst <= 0}.
+     */
+    public void setRateLimit(double tasksPerSecond, int burst);
+
+    /**
+     * Returns how many times a new task found the bounded queue of tasks
+     * full and was handled by the given saturation policy. An executor uses
+     * one policy, so the count of the other policies is always zero.
+     *
+     * @param policy the saturation policy
+     * @return count of tasks handled by the policy
+     * @see SaturationPolicy
+     */
+    public long getSaturationCount(SaturationPolicy policy);
+
+    /**
+     * Returns a snapshot of the statistics of the executor: count of
+     * submitted, completed and failed tasks, busy and idle time of each
+     * worker and the distribution of the time that tasks wait in the queue
+     * and run.<br>
+     * Each worker records its own tasks, so recording does not make the
+     * workers contend with each other. Tasks which are run by the caller
+     * due to {@link SaturationPolicy#CALLER_RUNS} are not recorded.
+     *
+     * @return the statistics
+     * @see ExecutorStats
+     */
+    public ExecutorStats getStats();
+
+    /**
+     * Turns recording of the time that tasks wait in the queue on or off,
+     * it is on by default. While it is on each task is wrapped in an object
+     * which keeps the time that it is queued, so turning it off saves an
+     * allocation and a clock read per task. The tasks which are queued while
+     * it is off are left out of {@link ExecutorStats#getQueueWait()} and of
+     * the task dequeued event of Java Flight Recorder, the rest of the
+     * statistics are still recorded. It has no effect on the priority
+     * thread pool, which always wraps its tasks.
+     *
+     * @param recorded {@code false} to queue the tasks as they are given.
+     */
+    public void setQueueWaitRecorded(boolean recorded);
+
+    /**
+     * Returns name of the executor, which is {@code executorplus-N} unless
+     * it is changed. The name is a prefix of the names of the worker threads,
+     * is carried by the Java Flight Recorder events of the executor and
+     * names its {@link ExecutorPlusMXBean}.
+     *
+     * @return name of the executor
+     */
+    public String getName();
+
+    /**
+     * Changes name of the executor, the threads which are already created
+     * keep their names. The {@link ExecutorPlusMXBean} is registered again
+     * under the new name, unless another executor has taken it, see
+     * {@link #isMBeanRegistered()}.
+     *
+     * @param name the new name
+     * @throws NullPointerException if the name is null
+     */
+    public void setName(String name);
+
+    /**
+     * Returns whether the {@link ExecutorPlusMXBean} of the executor is
+     * registered on the platform MBean server. An executor which is created
+     * by {@link ExecutorPlusFactory} registers it under its name, it is not
+     * registered while the name is taken by another executor and after
+     * shutdown.
+     *
+     * @return {@code true} if the MXBean is registered
+     */
+    public boolean isMBeanRegistered();
+
     /**
      * Returns count of created thread. this method can be used on cached thread
      * pool scenario which thread count is not fixed.
@@ -271,11 +684,55 @@ public interface ExecutorPlus extends Executor {
     public int getThreadCount();
 
     /**
-     * Blocks until all tasks have completed and every 2100ms checks threads
-     * state, also you can implement your own method using {@link isBusy()}.<br>
+     * Changes count of threads of the executor at runtime.
+     * <br>
+     * Growing starts the new threads at once. Shrinking retires idle threads
+     * first, a busy thread is retired after it finishes its current task
+     * (and the tasks which it has taken in a batch), so no task is lost.
+     * {@link #getThreadCount()} counts the retiring threads until they
+     * have exited.
+     *
+     * @param size the new count of threads.
+     * @throws IllegalArgumentException if {@code size <= 0}
+     * @throws IllegalStateException if the executor is shutdown.
+     * @throws UnsupportedOperationException if count of threads is not
+     * fixed, like cached thread pool and virtual thread executor, or it can
+     * not change, like single thread pool.
+     */
+    public void setPoolSize(int size);
+
+    /**
+     * Blocks until all tasks have completed, the waiting thread wakes up
+     * as soon as the last queued or running task finishes.<br>
      * Notes that calling {@link shutdown()} or {@link shutdownNow()} is not required.
      * 
      * @see isBusy()
      */
     public void waitToFinish();
+
+    /**
+     * Blocks until all tasks have completed, or the timeout occurs, or
+     * the current thread is interrupted, whichever happens first.<br>
+     * Notes that calling {@link shutdown()} or {@link shutdownNow()} is not required.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout argument
+     * @return {@code true} if all tasks have completed and {@code false}
+     *         if the timeout elapsed before that
+     * @throws InterruptedException if interrupted while waiting
+     * @see waitToFinish()
+     */
+    public boolean waitToFinish(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Returns a future which is completed as soon as there is no queued or
+     * running task, or immediately if the executor is not busy right now.
+     * <p>
+     * Note: non-async dependent actions of the returned future run in the
+     * thread which has finished the last task, so keep them short.
+     *
+     * @return a future that completes when the executor becomes idle
+     * @see isBusy()
+     */
+    public CompletableFuture<Void> onIdle();
 }
@@ -1,8 +1,10 @@
 package space.dastyar.lib.executorplus;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Instantiate {@link ExecutorPlus} implementations due to the factory patterns. 
- * There are three main implementation which will be instantiated
+ * There are six main implementation which will be instantiated
  * through static method of this interface.
  * 
  * @see ExecutorPlus
@@ -28,7 +30,136 @@ public interface ExecutorPlusFactory {
         if (nThreads <= 0) {
             throw new IllegalArgumentException("Thread count can not be zero or less.");
         }
-        return new FixedThreadPoolExecutorHandler(nThreads);
+        return ExecutorManager.monitor(new FixedThreadPoolExecutorHandler(nThreads));
+    }
+
+    /**
+     * Creates a thread pool that reuses a fixed number of threads
+     * operating off a shared bounded queue. If additional tasks are
+     * submitted when all threads are active they wait in the queue,
+     * and when the queue is full the given saturation policy decides
+     * what happens to them.
+     *
+     * @param nThreads the number of threads in the pool
+     * @param queueCapacity the maximum number of queued tasks
+     * @param policy what happens to a new task when the queue is full
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code nThreads <= 0} or
+     *         {@code queueCapacity <= 0}
+     * @throws NullPointerException if {@code policy} is null
+     * @see SaturationPolicy
+     */
+    public static ExecutorPlus newFixedThreadPool(int nThreads, int queueCapacity, SaturationPolicy policy) {
+        if (nThreads <= 0) {
+            throw new IllegalArgumentException("Thread count can not be zero or less.");
+        }
+        return ExecutorManager.monitor(new FixedThreadPoolExecutorHandler(nThreads, ExecuteHandler.newBoundedQueue(queueCapacity, policy), policy));
+    }
+
+    /**
+     * Creates a thread pool like {@link #newFixedThreadPool(int, int, SaturationPolicy)}
+     * whose queue is a pre-allocated lock free ring buffer, which does not
+     * allocate a node per task and does not block the submitting threads
+     * on a lock. Tasks are still wrapped to record the time they wait in the
+     * queue unless it is turned off by
+     * {@link ExecutorPlus#setQueueWaitRecorded(boolean)}. When the queue is full the submitting thread waits for space in
+     * the queue.
+     *
+     * @param nThreads the number of threads in the pool
+     * @param queueCapacity the minimum number of queued tasks, it is rounded
+     *        up to a power of two
+     * @param waitStrategy how an idle thread waits for a task
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code nThreads <= 0},
+     *         {@code queueCapacity <= 0} or {@code queueCapacity > 2^30}
+     * @throws NullPointerException if {@code waitStrategy} is null
+     * @see WaitStrategy
+     */
+    public static ExecutorPlus newRingBufferThreadPool(int nThreads, int queueCapacity, WaitStrategy waitStrategy) {
+        return newRingBufferThreadPool(nThreads, queueCapacity, SaturationPolicy.BLOCK, waitStrategy);
+    }
+
+    /**
+     * Creates a thread pool like {@link #newRingBufferThreadPool(int, int, WaitStrategy)}
+     * in which the given saturation policy decides what happens to a new
+     * task when the queue is full.
+     *
+     * @param nThreads the number of threads in the pool
+     * @param queueCapacity the minimum number of queued tasks, it is rounded
+     *        up to a power of two
+     * @param policy what happens to a new task when the queue is full
+     * @param waitStrategy how an idle thread waits for a task
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code nThreads <= 0},
+     *         {@code queueCapacity <= 0} or {@code queueCapacity > 2^30}
+     * @throws NullPointerException if {@code policy} or
+     *         {@code waitStrategy} is null
+     * @see SaturationPolicy
+     * @see WaitStrategy
+     */
+    public static ExecutorPlus newRingBufferThreadPool(int nThreads, int queueCapacity, SaturationPolicy policy, WaitStrategy waitStrategy) {
+        if (nThreads <= 0) {
+            throw new IllegalArgumentException("Thread count can not be zero or less.");
+        }
+        return ExecutorManager.monitor(new FixedThreadPoolExecutorHandler(nThreads, ExecuteHandler.newRingBuffer(queueCapacity, policy, waitStrategy), policy));
+    }
+
+    /**
+     * Creates a thread pool like {@link #newFixedThreadPool(int)} which
+     * starts with {@code minThreads} threads and changes its count of
+     * threads toward the best throughput of the submitted tasks, which
+     * suits tasks that mix computation with blocking I/O. The throughput
+     * and the count of queued tasks are sampled each 100 milliseconds.
+     *
+     * @param minThreads the minimum number of threads in the pool
+     * @param maxThreads the maximum number of threads in the pool
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code minThreads <= 0} or
+     *         {@code maxThreads < minThreads}
+     * @see #newAdaptiveThreadPool(int, int, long, TimeUnit)
+     */
+    public static ExecutorPlus newAdaptiveThreadPool(int minThreads, int maxThreads) {
+        return newAdaptiveThreadPool(minThreads, maxThreads, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a thread pool like {@link #newFixedThreadPool(int)} which
+     * starts with {@code minThreads} threads and changes its count of
+     * threads toward the best throughput of the submitted tasks.
+     * <br>
+     * A controller thread compares the throughput of each sample with the
+     * previous one: while tasks are queued it keeps adding or removing
+     * threads as long as the throughput improves and turns back when it
+     * drops, when no task is queued it removes threads. Each decision is
+     * logged by {@link java.util.logging} at {@code FINE} level. The
+     * controller stops when the pool is shut down.
+     *
+     * @param minThreads the minimum number of threads in the pool
+     * @param maxThreads the maximum number of threads in the pool
+     * @param sampleTime the time that throughput is measured over before
+     *        each decision
+     * @param unit the time unit of the sampleTime argument
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code minThreads <= 0},
+     *         {@code maxThreads < minThreads} or {@code sampleTime <= 0}
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public static ExecutorPlus newAdaptiveThreadPool(int minThreads, int maxThreads, long sampleTime, TimeUnit unit) {
+        if (minThreads <= 0) {
+            throw new IllegalArgumentException("Thread count can not be zero or less.");
+        }
+        if (maxThreads < minThreads) {
+            throw new IllegalArgumentException("Maximum thread count can not be less than minimum.");
+        }
+        if (sampleTime <= 0) {
+            throw new IllegalArgumentException("Sample time can not be zero or less.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Time unit can not be null!");
+        }
+        FixedThreadPoolExecutorHandler pool = ExecutorManager.monitor(new FixedThreadPoolExecutorHandler(minThreads));
+        new PoolSizeController(pool, minThreads, maxThreads, sampleTime, unit).start();
+        return pool;
     }
 
     /**
@@ -38,12 +169,45 @@ public interface ExecutorPlusFactory {
      * of programs that execute many short-lived asynchronous tasks.
      * Calls to {@code execute} will reuse previously constructed
      * threads if available. If no existing thread is available, a new
-     * thread will be created and added to the pool. 
+     * thread will be created and added to the pool. Threads that have
+     * not been used for sixty seconds are terminated and removed from
+     * the pool.
      *
      * @return the newly created thread pool
      */
     public static ExecutorPlus newCachedThreadPool() {
-        return new CacheThreadPoolExecutorHandler();
+        return ExecutorManager.monitor(new CacheThreadPoolExecutorHandler());
+    }
+
+    /**
+     * Creates a thread pool that creates new threads as needed, but
+     * will reuse previously constructed threads when they are
+     * available. At any point, at most {@code maxThreads} threads
+     * will be active processing tasks, additional tasks will wait in
+     * the queue until a thread is available. Threads that have not
+     * been used for the given keep-alive time are terminated and
+     * removed from the pool.
+     *
+     * @param maxThreads the maximum number of threads in the pool
+     * @param keepAliveTime the time that an idle thread waits for a
+     *        new task before it terminates
+     * @param unit the time unit of the keepAliveTime argument
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code maxThreads <= 0} or
+     *         {@code keepAliveTime < 0}
+     * @throws NullPointerException if {@code unit} is null
+     */
+    public static ExecutorPlus newCachedThreadPool(int maxThreads, long keepAliveTime, TimeUnit unit) {
+        if (maxThreads <= 0) {
+            throw new IllegalArgumentException("Thread count can not be zero or less.");
+        }
+        if (keepAliveTime < 0) {
+            throw new IllegalArgumentException("Keep-alive time can not be less than zero.");
+        }
+        if (unit == null) {
+            throw new NullPointerException("Time unit can not be null!");
+        }
+        return ExecutorManager.monitor(new CacheThreadPoolExecutorHandler(maxThreads, keepAliveTime, unit));
     }
     
      /**
@@ -58,7 +222,161 @@ public interface ExecutorPlusFactory {
      * @return the newly created single-threaded Executor
      */
     public static ExecutorPlus newSingelThreadPool() {
-        return new SingelThreadPoolExecutorHandler();
+        return ExecutorManager.monitor(new SingelThreadPoolExecutorHandler());
+    }
+
+    /**
+     * Creates an Executor that uses a single worker thread operating
+     * off a bounded queue. When the queue is full the given saturation
+     * policy decides what happens to a new task.
+     *
+     * @param queueCapacity the maximum number of queued tasks
+     * @param policy what happens to a new task when the queue is full
+     * @return the newly created single-threaded Executor
+     * @throws IllegalArgumentException if {@code queueCapacity <= 0}
+     * @throws NullPointerException if {@code policy} is null
+     * @see SaturationPolicy
+     */
+    public static ExecutorPlus newSingelThreadPool(int queueCapacity, SaturationPolicy policy) {
+        return ExecutorManager.monitor(new SingelThreadPoolExecutorHandler(ExecuteHandler.newBoundedQueue(queueCapacity, policy), policy));
+    }
+
+    /**
+     * Creates a thread pool that reuses a fixed number of threads
+     * operating off a shared unbounded priority queue. Queued tasks run
+     * in order of their priority and a waiting task gains one level of
+     * priority each second, so tasks of low priority are not starved.
+     *
+     * @param nThreads the number of threads in the pool
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code nThreads <= 0}
+     * @see PriorityExecutorPlus
+     */
+    public static PriorityExecutorPlus newPriorityThreadPool(int nThreads) {
+        return newPriorityThreadPool(nThreads, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates a thread pool that reuses a fixed number of threads
+     * operating off a shared unbounded priority queue. Queued tasks run
+     * in order of their priority and a waiting task gains one level of
+     * priority for each {@code aging} time it waits.
+     * <br>
+     * A longer aging lets tasks of high priority overtake a longer
+     * backlog of tasks of low priority, a shorter one makes the tasks of
+     * low priority wait less.
+     *
+     * @param nThreads the number of threads in the pool
+     * @param aging the time that raises the priority of a waiting task
+     *        by one level
+     * @param unit the time unit of the aging argument
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code nThreads <= 0} or
+     *         {@code aging <= 0}
+     * @see PriorityExecutorPlus
+     */
+    public static PriorityExecutorPlus newPriorityThreadPool(int nThreads, long aging, TimeUnit unit) {
+        if (nThreads <= 0) {
+            throw new IllegalArgumentException("Thread count can not be zero or less.");
+        }
+        if (aging <= 0) {
+            throw new IllegalArgumentException("Aging time can not be zero or less.");
+        }
+        return ExecutorManager.monitor(new PriorityThreadPoolExecutorHandler(nThreads, aging, unit));
+    }
+
+    /**
+     * Creates a thread pool that uses a fixed number of threads and
+     * gives each thread its own deque of tasks. Tasks submitted from
+     * inside a thread of the pool go to the deque of that thread,
+     * other tasks go to a shared unbounded queue, and a thread which
+     * has nothing to do steals tasks from the deque of other threads.
+     * This reduces contention on the shared queue when tasks are short
+     * or submit further tasks themselves.
+     *
+     * @param nThreads the number of threads in the pool
+     * @return the newly created thread pool
+     * @throws IllegalArgumentException if {@code nThreads <= 0}
+     */
+    public static ExecutorPlus newWorkStealingPool(int nThreads) {
+        if (nThreads <= 0) {
+            throw new IllegalArgumentException("Thread count can not be zero or less.");
+        }
+        return ExecutorManager.monitor(new WorkStealingExecutorHandler(nThreads));
+    }
+
+    /**
+     * Creates a work-stealing thread pool using the number of
+     * {@linkplain Runtime#availableProcessors available processors}
+     * as its thread count.
+     *
+     * @return the newly created thread pool
+     * @see #newWorkStealingPool(int)
+     */
+    public static ExecutorPlus newWorkStealingPool() {
+        return newWorkStealingPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an Executor that starts a new virtual thread for each
+     * task. The number of threads is not bounded, which suits tasks
+     * that spend most of their time blocked on I/O. The thread count
+     * of the executor is the number of running tasks.
+     *
+     * @return the newly created executor
+     * @throws UnsupportedOperationException if the running JVM does not
+     *         support virtual threads (Java 21 or later is required)
+     */
+    public static ExecutorPlus newVirtualThreadExecutor() {
+        return newVirtualThreadExecutor(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates an Executor that starts a new virtual thread for each
+     * task, but runs at most {@code maxConcurrency} tasks at the same
+     * time. Additional tasks wait in the queue until a running task
+     * has finished.
+     *
+     * @param maxConcurrency the maximum number of tasks running at the
+     *        same time
+     * @return the newly created executor
+     * @throws IllegalArgumentException if {@code maxConcurrency <= 0}
+     * @throws UnsupportedOperationException if the running JVM does not
+     *         support virtual threads (Java 21 or later is required)
+     */
+    public static ExecutorPlus newVirtualThreadExecutor(int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency limit can not be zero or less.");
+        }
+        return ExecutorManager.monitor(new VirtualThreadExecutorHandler(VirtualThreads.factory(), maxConcurrency));
+    }
+
+    /**
+     * Creates an Executor that starts a new virtual thread for each
+     * task and runs at most {@code maxConcurrency} tasks at the same
+     * time. Additional tasks wait in a bounded queue, and when the
+     * queue is full the given saturation policy decides what happens
+     * to them.
+     *
+     * @param maxConcurrency the maximum number of tasks running at the
+     *        same time
+     * @param queueCapacity the maximum number of queued tasks
+     * @param policy what happens to a new task when the queue is full
+     * @return the newly created executor
+     * @throws IllegalArgumentException if {@code maxConcurrency <= 0} or
+     *         {@code queueCapacity <= 0}
+     * @throws NullPointerException if {@code policy} is null
+     * @throws UnsupportedOperationException if the running JVM does not
+     *         support virtual threads (Java 21 or later is required)
+     * @see SaturationPolicy
+     */
+    public static ExecutorPlus newVirtualThreadExecutor(int maxConcurrency, int queueCapacity,
+            SaturationPolicy policy) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Concurrency limit can not be zero or less.");
+        }
+        return ExecutorManager.monitor(new VirtualThreadExecutorHandler(VirtualThreads.factory(), maxConcurrency,
+                ExecuteHandler.newBoundedQueue(queueCapacity, policy), policy));
     }
 
 }
@@ -0,0 +1,168 @@
+package space.dastyar.lib.executorplus;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The {@link ExecutorPlusMXBean} of an {@link ExecutorManager}.
+ * <br>
+ * Attributes are read from the executor on each request, the workers are
+ * read from a snapshot of the list of threads so a worker which is created
+ * or exited meanwhile does not disturb the reader.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class ExecutorPlusJmx implements ExecutorPlusMXBean {
+
+    private static final String DOMAIN = "space.dastyar.executorplus";
+
+    private final ExecutorManager executor;
+
+    /**
+     * Name of the registered MBean or {@code null} if it is not registered.
+     */
+    private ObjectName objectName;
+
+    ExecutorPlusJmx(ExecutorManager executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Registers the MBean on the platform MBean server under the current
+     * name of the executor, after unregistering the previous name.
+     * A name which is taken by another executor is skipped, monitoring must
+     * not stop the executor from working, and {@link #getObjectName()}
+     * returns {@code null} then.
+     */
+    synchronized void register() {
+        unregister();
+        try {
+            ObjectName name = new ObjectName(DOMAIN + ":type=ExecutorPlus,name="
+                    + ObjectName.quote(executor.getName()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            objectName = name;
+        } catch (JMException | SecurityException e) {
+            objectName = null;
+        }
+    }
+
+    /**
+     * Unregisters the MBean if it is registered.
+     */
+    synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException | SecurityException e) {
+            // already unregistered.
+        }
+        objectName = null;
+    }
+
+    /**
+     * @return name of the registered MBean or {@code null}.
+     */
+    synchronized ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public String getName() {
+        return executor.getName();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return executor.getQueueSize();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return executor.getThreadCount();
+    }
+
+    @Override
+    public void setPoolSize(int size) {
+        executor.setPoolSize(size);
+    }
+
+    @Override
+    public boolean isBusy() {
+        return executor.isBusy();
+    }
+
+    @Override
+    public boolean isPaused() {
+        return executor.isPaused();
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return executor.getSubmittedCount();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return executor.getStats().getCompletedCount();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return executor.getStats().getFailedCount();
+    }
+
+    @Override
+    public long getQueueWaitP99Micros() {
+        return executor.getStats().getQueueWait().getP99(TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public long getExecutionTimeP99Micros() {
+        return executor.getStats().getExecutionTime().getP99(TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public Map<String, String> getWorkerStates() {
+        Map<String, String> states = new LinkedHashMap<>();
+        // iterates over a snapshot, the list is copied on write.
+        for (Worker worker : executor.getThreads()) {
+            StringBuilder state = new StringBuilder(worker.isBusy() ? "busy" : "idle");
+            if (worker.isWaited()) {
+                state.append(",paused");
+            }
+            if (worker.isDead()) {
+                state.append(",dead");
+            }
+            if (worker.isDone()) {
+                state.append(",done");
+            }
+            states.put(worker.getName(), state.toString());
+        }
+        return states;
+    }
+
+    @Override
+    public void pause() {
+        executor.pause();
+    }
+
+    @Override
+    public void resume() {
+        executor.resume();
+    }
+
+    @Override
+    public void clear() {
+        executor.clear();
+    }
+
+}
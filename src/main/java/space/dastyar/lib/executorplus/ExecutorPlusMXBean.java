@@ -0,0 +1,103 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.Map;
+
+/**
+ * Management interface of an {@link ExecutorPlus}, each executor registers
+ * one on the platform MBean server under the name
+ * {@code space.dastyar.executorplus:type=ExecutorPlus,name=<name>} until it
+ * is shut down.
+ *
+ * @see ExecutorPlus#getName()
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public interface ExecutorPlusMXBean {
+
+    /**
+     * @return name of the executor.
+     */
+    public String getName();
+
+    /**
+     * @return count of queued tasks.
+     * @see ExecutorPlus#getQueueSize()
+     */
+    public int getQueueSize();
+
+    /**
+     * @return count of threads.
+     * @see ExecutorPlus#getThreadCount()
+     */
+    public int getPoolSize();
+
+    /**
+     * @param size the new count of threads.
+     * @see ExecutorPlus#setPoolSize(int)
+     */
+    public void setPoolSize(int size);
+
+    /**
+     * @return {@code true} if any task is queued or running.
+     * @see ExecutorPlus#isBusy()
+     */
+    public boolean isBusy();
+
+    /**
+     * @return {@code true} if the executor is paused.
+     */
+    public boolean isPaused();
+
+    /**
+     * @return count of tasks that are accepted for execution.
+     * @see ExecutorStats#getSubmittedCount()
+     */
+    public long getSubmittedCount();
+
+    /**
+     * @return count of tasks that the executor has run.
+     * @see ExecutorStats#getCompletedCount()
+     */
+    public long getCompletedCount();
+
+    /**
+     * @return count of tasks that have failed.
+     * @see ExecutorStats#getFailedCount()
+     */
+    public long getFailedCount();
+
+    /**
+     * @return the 99th percentile of queue wait in microseconds.
+     */
+    public long getQueueWaitP99Micros();
+
+    /**
+     * @return the 99th percentile of execution time in microseconds.
+     */
+    public long getExecutionTimeP99Micros();
+
+    /**
+     * Returns the state of each worker thread by its name, as a comma
+     * separated list of {@code busy} or {@code idle}, {@code paused},
+     * {@code dead} (shutdown is requested) and {@code done}.
+     *
+     * @return states of the workers.
+     */
+    public Map<String, String> getWorkerStates();
+
+    /**
+     * @see ExecutorPlus#pause()
+     */
+    public void pause();
+
+    /**
+     * @see ExecutorPlus#resume()
+     */
+    public void resume();
+
+    /**
+     * @see ExecutorPlus#clear()
+     */
+    public void clear();
+
+}
@@ -0,0 +1,134 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the statistics of an {@link ExecutorPlus}, returned by
+ * {@link ExecutorPlus#getStats()}.
+ * <br>
+ * Workers record their own statistics without any synchronization, so a
+ * snapshot which is taken while tasks are running might be slightly behind,
+ * it is exact once the executor is idle.
+ *
+ * @see ExecutorPlus#getStats()
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public final class ExecutorStats {
+
+    private final long submittedCount;
+
+    private final long completedCount;
+
+    private final long failedCount;
+
+    private final long[] saturationCounts;
+
+    private final List<WorkerStats> workers;
+
+    private final LatencyHistogram queueWait;
+
+    private final LatencyHistogram executionTime;
+
+    private final long throttledCount;
+
+    private final long throttledNanos;
+
+    ExecutorStats(long submittedCount, long completedCount, long failedCount, long[] saturationCounts,
+            List<WorkerStats> workers, LatencyHistogram queueWait, LatencyHistogram executionTime,
+            long throttledCount, long throttledNanos) {
+        this.submittedCount = submittedCount;
+        this.completedCount = completedCount;
+        this.failedCount = failedCount;
+        this.saturationCounts = saturationCounts;
+        this.workers = workers;
+        this.queueWait = queueWait;
+        this.executionTime = executionTime;
+        this.throttledCount = throttledCount;
+        this.throttledNanos = throttledNanos;
+    }
+
+    /**
+     * @return count of tasks that are accepted for execution, each run of
+     * a periodic task counts once.
+     */
+    public long getSubmittedCount() {
+        return submittedCount;
+    }
+
+    /**
+     * @return count of tasks that the executor has run, including the
+     * failed ones.
+     */
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * @return count of tasks that have thrown an exception, either to the
+     * worker or to their future.
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * @param policy the saturation policy.
+     * @return count of tasks that are handled by the policy.
+     * @see ExecutorPlus#getSaturationCount(SaturationPolicy)
+     */
+    public long getSaturationCount(SaturationPolicy policy) {
+        return saturationCounts[policy.ordinal()];
+    }
+
+    /**
+     * @return statistics of the live workers, empty for the executors which
+     * do not keep their threads.
+     */
+    public List<WorkerStats> getWorkers() {
+        return workers;
+    }
+
+    /**
+     * @return distribution of the time that tasks have waited in the queue
+     * before running.
+     */
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    /**
+     * @return distribution of the time that tasks have run.
+     */
+    public LatencyHistogram getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * @return count of times that a thread had a task but has waited for a
+     * permit of the rate limit.
+     * @see ExecutorPlus#setRateLimit(double, int)
+     */
+    public long getThrottledCount() {
+        return throttledCount;
+    }
+
+    /**
+     * @param unit the time unit of the result.
+     * @return total time that the threads have waited for a permit of the
+     * rate limit.
+     * @see ExecutorPlus#setRateLimit(double, int)
+     */
+    public long getThrottledTime(TimeUnit unit) {
+        return unit.convert(throttledNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "submitted=" + submittedCount + ", completed=" + completedCount + ", failed=" + failedCount
+                + ", throttled=" + throttledCount
+                + ", queueWait=[" + queueWait + "], executionTime=[" + executionTime + "]";
+    }
+
+}
@@ -1,5 +1,7 @@
 package space.dastyar.lib.executorplus;
 
+import java.util.concurrent.BlockingQueue;
+
 /**
  * FixedThreadPoolExecutor implementation of {@link ExecutorPlus}.
  * 
@@ -12,4 +14,9 @@ package space.dastyar.lib.executorplus;
         super(size);
     }
 
+    public FixedThreadPoolExecutorHandler(int size, BlockingQueue<Runnable> tasks,
+            SaturationPolicy saturationPolicy) {
+        super(size, tasks, saturationPolicy);
+    }
+
 }
@@ -0,0 +1,222 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A task which splits its work into subtasks that run in parallel, like
+ * {@code RecursiveTask} of {@code ForkJoinPool}.
+ * <br>
+ * A task {@link #fork() forks} its subtasks, computes its own part and then
+ * {@link #join() joins} the subtasks. A thread of the executor which joins
+ * a subtask that no other thread has taken yet runs it by itself, and while
+ * the subtask runs on another thread it runs its own pending subtasks
+ * instead of blocking, so a tree of tasks never waits for a free thread.
+ * The tree is complete exactly when the root task is complete.
+ * <pre>{@code
+ * class Sum extends ForkTask<Long> {
+ *     protected Long compute() {
+ *         if (to - from < 1000) {
+ *             return sum(from, to);
+ *         }
+ *         Sum left = new Sum(from, mid);
+ *         left.fork();
+ *         return new Sum(mid, to).compute() + left.join();
+ *     }
+ * }
+ * long sum = executor.invoke(new Sum(0, n));
+ * }</pre>
+ * In the work-stealing pool a subtask goes to the local stack of the
+ * thread which forks it and idle threads steal it, in the other pools it
+ * goes to the shared queue of tasks, or to the local tasks of the thread
+ * if the queue is full. A task which is forked outside the threads of an
+ * executor runs when it is joined.
+ * <br>
+ * Note: out of the work-stealing pool, a thread which joins a subtask that
+ * is taken by another thread only runs its own pending subtasks and then
+ * waits for it, and taking a subtask back from the shared queue is O(n),
+ * so the work-stealing pool is the one for large trees of tasks.
+ *
+ * @param <V> the result type
+ * @see ExecutorPlus#invoke(ForkTask)
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public abstract class ForkTask<V> implements ListenableFuture<V> {
+
+    /**
+     * Runs {@link #compute()} and holds the result, it is what the executor
+     * runs.
+     */
+    final class Forked extends ListenableFutureTask<V> {
+
+        Forked() {
+            super(ForkTask.this::compute);
+        }
+
+    }
+
+    private final Forked future = new Forked();
+
+    /**
+     * Indicates that {@link #fork()} is called.
+     */
+    private volatile boolean forked;
+
+    /**
+     * The executor which the task is forked on or {@code null}.
+     */
+    private volatile ExecuteHandler executor;
+
+    /**
+     * The {@link future} as it is queued in the {@link executor}.
+     */
+    private volatile QueuedTask queued;
+
+    /**
+     * The computation of this task, which may fork and join subtasks.
+     *
+     * @return the result
+     */
+    protected abstract V compute();
+
+    /**
+     * Queues this task to run in the executor of the current thread, a
+     * task must be forked at most once.
+     *
+     * @return this task
+     * @throws IllegalStateException if the task is already forked.
+     * @throws java.util.concurrent.RejectedExecutionException if the
+     * executor is shutdown.
+     */
+    public final ForkTask<V> fork() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof Worker && ((Worker) thread).getExecutor() instanceof ExecuteHandler) {
+            forkOn((ExecuteHandler) ((Worker) thread).getExecutor());
+        } else {
+            markForked();
+        }
+        return this;
+    }
+
+    /**
+     * Queues this task to run in the given executor.
+     *
+     * @throws IllegalStateException if the task is already forked.
+     */
+    void forkOn(ExecuteHandler executor) {
+        markForked();
+        this.executor = executor;
+        queued = executor.fork(future);
+    }
+
+    /**
+     * @throws IllegalStateException if the task is already forked.
+     */
+    private void markForked() {
+        if (forked) {
+            throw new IllegalStateException("Task is already forked.");
+        }
+        forked = true;
+    }
+
+    /**
+     * Returns the result of the task when it is done, a thread of the
+     * executor runs the task by itself if no other thread has taken it yet
+     * and a task which is not forked on an executor runs in the current
+     * thread. Unlike
+     * {@link #get()} it is not interruptible and the exception of
+     * {@link #compute()} is thrown as it is.
+     *
+     * @return the result
+     * @throws CancellationException if the task is cancelled.
+     */
+    public final V join() {
+        if (!future.isDone()) {
+            ExecuteHandler ex = executor;
+            QueuedTask task = queued;
+            if (ex != null && task != null) {
+                ex.join(task, future);
+            } else {
+                future.run();
+            }
+        }
+        return awaitResult();
+    }
+
+    /**
+     * Runs the task in the current thread and returns its result.
+     *
+     * @return the result
+     * @throws CancellationException if the task is cancelled.
+     */
+    public final V invoke() {
+        future.run();
+        return join();
+    }
+
+    /**
+     * Waits for the task to be done without being interrupted.
+     *
+     * @see #join()
+     */
+    V awaitResult() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return future.cancel(mayInterruptIfRunning);
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return future.isCancelled();
+    }
+
+    @Override
+    public boolean isDone() {
+        return future.isDone();
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException {
+        return future.get();
+    }
+
+    @Override
+    public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        return future.get(timeout, unit);
+    }
+
+    @Override
+    public void addListener(Runnable listener, Executor executor) {
+        future.addListener(listener, executor);
+    }
+
+}
@@ -1,23 +1,22 @@
 package space.dastyar.lib.executorplus;
 
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
- * Uses the {@link FutureTask} as underling implementation
- * of {@link Future} interface.
+ * Uses the {@link ListenableFutureTask} as underling implementation
+ * of {@link ListenableFuture} interface.
  * 
  * @since 0.1
  * @author Alireza Dastyar
  */
- class FutureSimulator<T> implements Future<T> {
+ class FutureSimulator<T> implements ListenableFuture<T> {
 
-    private final FutureTask<T> futureTask;
+    private final ListenableFutureTask<T> futureTask;
 
-    public FutureSimulator(FutureTask<T> futureTask) {
+    public FutureSimulator(ListenableFutureTask<T> futureTask) {
         this.futureTask = futureTask;
     }
 
@@ -46,4 +45,9 @@ import java.util.concurrent.TimeoutException;
         return futureTask.get(timeout, unit);
     }
 
+    @Override
+    public void addListener(Runnable listener, Executor executor) {
+        futureTask.addListener(listener, executor);
+    }
+
 }
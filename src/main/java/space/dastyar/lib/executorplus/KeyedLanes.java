@@ -0,0 +1,158 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serial lanes of tasks by key, the tasks of a key run one after another in
+ * order of submission while the tasks of different keys run in parallel on
+ * the threads of the executor.
+ * <br>
+ * A lane exists only while its key has a task which is queued or running:
+ * it is created by the first task of the key and removed after its last
+ * task, so the memory is proportional to the count of active keys. Only one
+ * run of a lane is in the queue of the executor at a time, it runs the
+ * first task of the lane and then queues the next run if there is another
+ * task. All of the changes to a lane are made in
+ * {@link ConcurrentHashMap#compute}, so they are serialized by the map.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class KeyedLanes {
+
+    /**
+     * A lane of tasks which is queued in the executor as a single task.
+     */
+    final class Lane implements Runnable {
+
+        private final Object key;
+
+        /**
+         * The task which runs next, guarded by the map.
+         */
+        private Runnable current;
+
+        /**
+         * The tasks which wait for {@link current}, guarded by the map.
+         */
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+
+        /**
+         * The task which has run last, only used by the running thread.
+         */
+        private Runnable lastRun;
+
+        private Lane(Object key, Runnable task) {
+            this.key = key;
+            this.current = task;
+        }
+
+        @Override
+        public void run() {
+            // set before the lane is queued, so the queue publishes it.
+            Runnable task = current;
+            lastRun = task;
+            boolean thrown = true;
+            try {
+                task.run();
+                thrown = false;
+            } finally {
+                if (advance()) {
+                    executor.continueLane(this, thrown);
+                }
+            }
+        }
+
+        /**
+         * Moves the next task to {@link current} or removes the lane if
+         * there is none.
+         *
+         * @return {@code true} if the lane has another task.
+         */
+        private boolean advance() {
+            return lanes.compute(key, (k, lane) -> {
+                Runnable next = waiting.poll();
+                if (next == null) {
+                    return null;
+                }
+                current = next;
+                return this;
+            }) != null;
+        }
+
+        /**
+         * Removes the lane when it is dropped from the queue of the executor
+         * and it will never run.
+         *
+         * @param tasks receives the tasks of the lane in order.
+         */
+        void discard(Collection<Runnable> tasks) {
+            lanes.compute(key, (k, lane) -> {
+                tasks.add(current);
+                tasks.addAll(waiting);
+                waiting.clear();
+                return lane == this ? null : lane;
+            });
+        }
+
+        /**
+         *
+         * @return {@link lastRun}
+         */
+        Runnable getLastRun() {
+            return lastRun;
+        }
+
+    }
+
+    private final ExecuteHandler executor;
+
+    private final ConcurrentHashMap<Object, Lane> lanes = new ConcurrentHashMap<>();
+
+    /**
+     * @param executor the executor which runs the lanes.
+     */
+    KeyedLanes(ExecuteHandler executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Adds the task to the lane of the key, the task must be counted as in
+     * flight by the executor already.
+     *
+     * @param key the key of the lane.
+     * @param task the task.
+     * @return the lane if it is created by this task and should be queued,
+     * otherwise {@code null}.
+     */
+    Lane add(Object key, Runnable task) {
+        Lane[] created = new Lane[1];
+        lanes.compute(key, (k, lane) -> {
+            if (lane == null) {
+                created[0] = new Lane(k, task);
+                return created[0];
+            }
+            lane.waiting.add(task);
+            return lane;
+        });
+        return created[0];
+    }
+
+    /**
+     * @return {@code true} if there is no active lane.
+     */
+    boolean isEmpty() {
+        return lanes.isEmpty();
+    }
+
+    /**
+     * @return count of the active lanes.
+     */
+    int size() {
+        return lanes.size();
+    }
+
+}
@@ -0,0 +1,164 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the distribution of a duration, like the time that tasks
+ * wait in the queue or the time they run.
+ * <br>
+ * Durations are counted in buckets with eight sub-buckets for each power
+ * of two nanoseconds, so a percentile is at most 12.5 percent larger than
+ * the exact value, while recording a duration is an increment of an array
+ * element.
+ *
+ * @see ExecutorStats
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Count of sub-buckets of each power of two is {@code 2^SUB_BITS}.
+     */
+    private static final int SUB_BITS = 3;
+
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+
+    /**
+     * Count of buckets which cover all of the positive {@code long} values.
+     */
+    static final int BUCKETS = (Long.SIZE - SUB_BITS) * SUB_COUNT;
+
+    private final long[] counts;
+
+    private final long count;
+
+    private final long totalNanos;
+
+    private final long maxNanos;
+
+    /**
+     * @param counts count of durations in each bucket, it is not copied.
+     * @param totalNanos sum of the durations.
+     * @param maxNanos the longest duration.
+     */
+    LatencyHistogram(long[] counts, long totalNanos, long maxNanos) {
+        long sum = 0;
+        for (long c : counts) {
+            sum += c;
+        }
+        this.counts = counts;
+        this.count = sum;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+    }
+
+    /**
+     * Returns the index of the bucket of a duration.
+     *
+     * @param nanos the duration, negative values are counted as zero.
+     */
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_COUNT) {
+            return (int) Math.max(0, nanos);
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * Returns the largest duration of a bucket.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        long sub = bucket % SUB_COUNT;
+        long lower = (SUB_COUNT + sub) << (exponent - SUB_BITS);
+        return lower + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * @return count of recorded durations.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param unit the time unit of the result.
+     * @return the average duration or zero if nothing is recorded.
+     */
+    public long getMean(TimeUnit unit) {
+        return count == 0 ? 0 : unit.convert(totalNanos / count, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit the time unit of the result.
+     * @return the longest duration or zero if nothing is recorded.
+     */
+    public long getMax(TimeUnit unit) {
+        return unit.convert(maxNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the duration which the given percent of the recorded durations
+     * are not longer than.
+     *
+     * @param percentile the percent, larger than zero and at most 100.
+     * @param unit the time unit of the result.
+     * @return the duration or zero if nothing is recorded.
+     * @throws IllegalArgumentException if the percentile is out of range.
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        if (!(percentile > 0 && percentile <= 100)) {
+            throw new IllegalArgumentException("Percentile must be larger than 0 and at most 100.");
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * count);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return unit.convert(Math.min(upperBoundOf(i), maxNanos), TimeUnit.NANOSECONDS);
+            }
+        }
+        return unit.convert(maxNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit the time unit of the result.
+     * @return the median duration.
+     */
+    public long getP50(TimeUnit unit) {
+        return getPercentile(50, unit);
+    }
+
+    /**
+     * @param unit the time unit of the result.
+     * @return the 99th percentile of durations.
+     */
+    public long getP99(TimeUnit unit) {
+        return getPercentile(99, unit);
+    }
+
+    /**
+     * @param unit the time unit of the result.
+     * @return the 99.9th percentile of durations.
+     */
+    public long getP999(TimeUnit unit) {
+        return getPercentile(99.9, unit);
+    }
+
+    @Override
+    public String toString() {
+        TimeUnit unit = TimeUnit.MICROSECONDS;
+        return "count=" + count + ", p50=" + getP50(unit) + "us, p99=" + getP99(unit)
+                + "us, p999=" + getP999(unit) + "us, max=" + getMax(unit) + "us";
+    }
+
+}
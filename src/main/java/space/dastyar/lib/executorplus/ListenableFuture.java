@@ -0,0 +1,35 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link Future} which accepts listeners that run when the task
+ * completes, normally, exceptionally or by cancellation, so the completion
+ * can be handled without blocking a thread on {@link #get()}.
+ *
+ * @param <T> the result type
+ * @see ExecutorPlus#submit(java.util.concurrent.Callable)
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public interface ListenableFuture<T> extends Future<T> {
+
+    /**
+     * Registers a listener to be run on the given executor when the task
+     * completes. If the task is already complete the listener is passed
+     * to the executor immediately. Each listener runs once, in the order
+     * of registration as far as the executor keeps it.
+     * <br>
+     * A listener which throws or is rejected by its executor does not
+     * affect the other listeners.
+     *
+     * @param listener the listener to run
+     * @param executor the executor to run the listener in, a direct
+     * executor like {@code Runnable::run} runs it in the thread which
+     * completes the task
+     * @throws NullPointerException if the listener or executor is null
+     */
+    public void addListener(Runnable listener, Executor executor);
+
+}
@@ -0,0 +1,90 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A {@link FutureTask} which runs its listeners as soon as it is done.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class ListenableFutureTask<T> extends FutureTask<T> {
+
+    /**
+     * Listeners which are not run yet, each one is wrapped to run in its
+     * executor.
+     */
+    private final Queue<Runnable> listeners = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Indicates that {@link done()} has run, listeners added after that are
+     * run by {@link addListener}.
+     */
+    private volatile boolean completed;
+
+    /**
+     * The exception which is thrown by the task, it is only read by the
+     * worker which has run the task.
+     */
+    private Throwable failure;
+
+    ListenableFutureTask(Callable<T> task) {
+        super(task);
+    }
+
+    ListenableFutureTask(Runnable task, T result) {
+        super(task, result);
+    }
+
+    /**
+     * @see ListenableFuture#addListener(Runnable, Executor)
+     */
+    void addListener(Runnable listener, Executor executor) {
+        if (listener == null || executor == null) {
+            throw new NullPointerException("Listener and executor can not be null!");
+        }
+        listeners.add(() -> executor.execute(listener));
+        if (completed) {
+            runListeners();
+        }
+    }
+
+    @Override
+    protected void setException(Throwable t) {
+        failure = t;
+        super.setException(t);
+    }
+
+    /**
+     * @see failure
+     */
+    Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    protected void done() {
+        completed = true;
+        runListeners();
+    }
+
+    /**
+     * Runs the listeners which are not run yet, polling makes each of them
+     * run once even if this method runs in two threads at the same time.
+     */
+    private void runListeners() {
+        Runnable listener;
+        while ((listener = listeners.poll()) != null) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                // a failing listener must not stop the others.
+            }
+        }
+    }
+
+}
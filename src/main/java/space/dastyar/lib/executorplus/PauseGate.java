@@ -0,0 +1,149 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A gate which the threads of an executor pass before they run a task, it
+ * is closed while the executor is paused.
+ * <br>
+ * The gate is shared by all of the threads, so pausing and resuming take
+ * constant time whatever the count of threads is and a thread which is
+ * created while the executor is paused sees the gate closed. Threads which
+ * wait for the gate wait on a single condition which is signalled once on
+ * {@link #open()}.
+ * <br>
+ * A thread marks itself as running before it checks the gate and clears
+ * the mark before it calls {@link #taskExited()}, so a thread which calls
+ * {@link #awaitDrained} after closing the gate either sees the mark or the
+ * running thread sees the gate closed.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class PauseGate {
+
+    private volatile boolean closed;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when the gate is opened.
+     */
+    private final Condition opened = lock.newCondition();
+
+    /**
+     * Signalled when a task stops running while the gate is closed.
+     */
+    private final Condition drained = lock.newCondition();
+
+    /**
+     * Closes the gate.
+     *
+     * @return {@code false} if the gate is already closed.
+     */
+    boolean close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Opens the gate and wakes up all of the waiting threads.
+     *
+     * @return {@code false} if the gate is already open.
+     */
+    boolean open() {
+        lock.lock();
+        try {
+            if (!closed) {
+                return false;
+            }
+            closed = false;
+            opened.signalAll();
+            drained.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return {@link closed}
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Blocks while the gate is closed.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void awaitOpen() throws InterruptedException {
+        if (!closed) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (closed) {
+                opened.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Must be called after a thread has cleared its running mark, wakes up
+     * the threads which wait in {@link #awaitDrained} if the gate is closed.
+     */
+    void taskExited() {
+        if (!closed) {
+            return;
+        }
+        lock.lock();
+        try {
+            drained.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until no task is running while the gate is closed, or the gate
+     * is opened, or the timeout occurs.
+     *
+     * @param running tells whether any thread is marked as running.
+     * @param timed {@code true} if the wait is limited.
+     * @param nanos the maximum time to wait.
+     * @return {@code true} if the gate is closed and no task is running.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    boolean awaitDrained(BooleanSupplier running, boolean timed, long nanos) throws InterruptedException {
+        lock.lock();
+        try {
+            while (closed && running.getAsBoolean()) {
+                if (!timed) {
+                    drained.await();
+                } else if (nanos <= 0) {
+                    return false;
+                } else {
+                    nanos = drained.awaitNanos(nanos);
+                }
+            }
+            return closed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Changes the count of threads of an executor toward the best throughput
+ * by hill climbing, between {@link minThreads} and {@link maxThreads}.
+ * <br>
+ * On each sample the throughput of the last {@link sampleNanos} is compared
+ * with the throughput of the previous sample: while there are queued tasks
+ * the controller keeps moving the size in the same direction if the
+ * throughput has improved, turns back if it has dropped and steps down if
+ * it has not changed, since the added thread did not help. When no task is
+ * queued for {@link IDLE_SAMPLES} samples the threads keep up with the
+ * tasks, so the size steps down.
+ * <br>
+ * Each decision is logged at {@link Level#FINE}. The controller stops when
+ * the executor is shut down.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class PoolSizeController extends Thread {
+
+    private static final Logger LOGGER = Logger.getLogger(PoolSizeController.class.getName());
+
+    /**
+     * Relative change of throughput which is taken as a real change,
+     * smaller ones are noise.
+     */
+    private static final double TOLERANCE = 0.05;
+
+    /**
+     * Count of samples without queued task before the size steps down.
+     */
+    private static final int IDLE_SAMPLES = 3;
+
+    private final ExecutorManager executor;
+
+    private final int minThreads;
+
+    private final int maxThreads;
+
+    /**
+     * Duration of a sample.
+     */
+    private final long sampleNanos;
+
+    // the following fields are only used by this thread.
+
+    /**
+     * Throughput of the previous sample in tasks per second or {@code -1}
+     * if it is not comparable, like after an idle sample.
+     */
+    private double lastThroughput = -1;
+
+    /**
+     * Direction of the next step, {@code 1} or {@code -1}.
+     */
+    private int step = 1;
+
+    /**
+     * Count of the last samples without queued task.
+     */
+    private int idleSamples;
+
+    /**
+     * @param executor the executor to resize.
+     * @param minThreads minimum count of threads.
+     * @param maxThreads maximum count of threads.
+     * @param sampleTime duration of a sample.
+     * @param unit the time unit of the sampleTime argument.
+     */
+    PoolSizeController(ExecutorManager executor, int minThreads, int maxThreads, long sampleTime, TimeUnit unit) {
+        this.executor = executor;
+        this.minThreads = minThreads;
+        this.maxThreads = maxThreads;
+        this.sampleNanos = unit.toNanos(sampleTime);
+        setName(executor.getName() + "-controller");
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        long lastFinished = executor.getFinishedCount();
+        long lastTime = System.nanoTime();
+        // retiring threads are still counted by the executor.
+        int size = executor.getThreadCount();
+        try {
+            while (!executor.isShutdown()) {
+                TimeUnit.NANOSECONDS.sleep(sampleNanos);
+                long finished = executor.getFinishedCount();
+                long now = System.nanoTime();
+                if (executor.isPaused()) {
+                    // nothing runs, the sample says nothing about the size.
+                    lastThroughput = -1;
+                } else {
+                    double throughput = (finished - lastFinished) * 1e9 / (now - lastTime);
+                    int next = decide(throughput, executor.getQueueSize(), size);
+                    if (next != size) {
+                        executor.setPoolSize(next);
+                        size = next;
+                    }
+                }
+                lastFinished = finished;
+                lastTime = now;
+            }
+        } catch (InterruptedException | IllegalStateException ex) {
+            // shut down meanwhile.
+        }
+    }
+
+    /**
+     * Decides the count of threads for the next sample and logs the
+     * decision.
+     *
+     * @param throughput finished tasks per second in the last sample.
+     * @param queued count of queued tasks.
+     * @param size current count of threads.
+     * @return the next count of threads.
+     */
+    int decide(double throughput, int queued, int size) {
+        String reason;
+        if (queued == 0) {
+            lastThroughput = -1;
+            step = 1;
+            if (++idleSamples < IDLE_SAMPLES || size <= minThreads) {
+                return log(throughput, queued, size, size, "no queued task");
+            }
+            idleSamples = 0;
+            return log(throughput, queued, size, Math.max(minThreads, size - 1), "threads are idle");
+        }
+        idleSamples = 0;
+        if (lastThroughput < 0) {
+            reason = "tasks are queued";
+        } else if (throughput < lastThroughput * (1 - TOLERANCE)) {
+            step = -step;
+            reason = "throughput dropped";
+        } else if (throughput > lastThroughput * (1 + TOLERANCE)) {
+            reason = "throughput improved";
+        } else {
+            step = -1;
+            reason = "throughput did not change";
+        }
+        lastThroughput = throughput;
+        int next = size + step;
+        if (next < minThreads || next > maxThreads) {
+            // a bound is reached, the next step goes the other way.
+            step = -step;
+            next = size;
+        }
+        return log(throughput, queued, size, next, reason);
+    }
+
+    /**
+     * @return the next count of threads.
+     */
+    private int log(double throughput, int queued, int size, int next, String reason) {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.log(Level.FINE, "{0}: {1} tasks/s, {2} queued, pool size {3} -> {4}, {5}",
+                    new Object[]{executor.getName(), Math.round(throughput), queued, size, next, reason});
+        }
+        return next;
+    }
+
+}
@@ -0,0 +1,120 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link ExecutorPlus} which runs queued tasks in order of their
+ * priority instead of the order of submission.<br>
+ * To prevent starvation, waiting tasks are aged: a task gains one level
+ * of priority for each aging quantum it spends in the queue, so a task
+ * of {@link #MIN_PRIORITY} waits at most
+ * {@code (MAX_PRIORITY - MIN_PRIORITY)} quanta longer than it would wait
+ * in a first in first out queue. Tasks with the same effective priority
+ * run in order of submission.<br>
+ * Tasks submitted through the methods of {@link ExecutorPlus} have
+ * {@link #NORM_PRIORITY}.
+ * Use {@link ExecutorPlusFactory#newPriorityThreadPool(int)} for
+ * instantiation.
+ *
+ * @see ExecutorPlusFactory
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public interface PriorityExecutorPlus extends ExecutorPlus {
+
+    /**
+     * The minimum priority that a task can have.
+     */
+    public static final int MIN_PRIORITY = 0;
+
+    /**
+     * The default priority that is assigned to a task.
+     */
+    public static final int NORM_PRIORITY = 5;
+
+    /**
+     * The maximum priority that a task can have.
+     */
+    public static final int MAX_PRIORITY = 9;
+
+    /**
+     * Executes the given command at some time in the future with the given
+     * priority.
+     *
+     * @param task the task to execute.
+     * @param priority priority of the task, from {@link #MIN_PRIORITY} to
+     * {@link #MAX_PRIORITY}
+     * @throws RejectedExecutionException if the task cannot be accepted for
+     * execution
+     * @throws NullPointerException if the task is null
+     * @throws IllegalArgumentException if the priority is out of range
+     */
+    public void execute(Runnable task, int priority);
+
+    /**
+     * Submits a Runnable task for execution with the given priority and
+     * returns a Future representing that task. The Future's {@code get}
+     * method will return {@code null} upon <em>successful</em> completion.
+     *
+     * @param task the task to submit
+     * @param priority priority of the task, from {@link #MIN_PRIORITY} to
+     * {@link #MAX_PRIORITY}
+     * @return a Future representing pending completion of the task
+     * @throws RejectedExecutionException if the task cannot be scheduled for
+     * execution
+     * @throws NullPointerException if the task is null
+     * @throws IllegalArgumentException if the priority is out of range
+     */
+    public ListenableFuture<?> submitWithPriority(Runnable task, int priority);
+
+    /**
+     * Submits a value-returning task for execution with the given priority
+     * and returns a Future representing the pending results of the task.
+     *
+     * @param task the task to submit
+     * @param priority priority of the task, from {@link #MIN_PRIORITY} to
+     * {@link #MAX_PRIORITY}
+     * @param <T> the type of the task's result
+     * @return a Future representing pending completion of the task
+     * @throws RejectedExecutionException if the task cannot be scheduled for
+     * execution
+     * @throws NullPointerException if the task is null
+     * @throws IllegalArgumentException if the priority is out of range
+     */
+    public <T> ListenableFuture<T> submitWithPriority(Callable<T> task, int priority);
+
+    /**
+     * Returns count of tasks with the given priority that have left the
+     * queue and started.
+     *
+     * @param priority the priority level
+     * @return count of started tasks
+     * @throws IllegalArgumentException if the priority is out of range
+     */
+    public long getStartedCount(int priority);
+
+    /**
+     * Returns the average time that the started tasks with the given
+     * priority have waited in the queue.
+     *
+     * @param priority the priority level
+     * @param unit the time unit of the result
+     * @return the average wait or zero if no task is started yet
+     * @throws IllegalArgumentException if the priority is out of range
+     */
+    public long getAverageQueueWait(int priority, TimeUnit unit);
+
+    /**
+     * Returns the longest time that a started task with the given priority
+     * has waited in the queue.
+     *
+     * @param priority the priority level
+     * @param unit the time unit of the result
+     * @return the longest wait or zero if no task is started yet
+     * @throws IllegalArgumentException if the priority is out of range
+     */
+    public long getMaxQueueWait(int priority, TimeUnit unit);
+
+}
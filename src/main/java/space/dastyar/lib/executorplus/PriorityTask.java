@@ -0,0 +1,56 @@
+package space.dastyar.lib.executorplus;
+
+/**
+ * A queued task of {@link PriorityThreadPoolExecutorHandler} which is
+ * ordered by its aged priority.
+ * <br>
+ * The order is decided once when the task is queued: the time of queueing
+ * minus one aging quantum for each level of priority. Aging does not change
+ * the order of the tasks which are already queued, so the order of the
+ * queue stays valid while the tasks wait.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class PriorityTask extends QueuedTask implements Comparable<PriorityTask> {
+
+    private final int priority;
+
+    /**
+     * Order of the task, smaller runs first.
+     */
+    private final long rank;
+
+    /**
+     * Order of submission, breaks ties between equal ranks.
+     */
+    private final long sequence;
+
+    /**
+     * @param task the task to run.
+     * @param priority priority of the task.
+     * @param agingNanos time that raises the priority by one level.
+     * @param sequence order of submission.
+     */
+    PriorityTask(Runnable task, int priority, long agingNanos, long sequence) {
+        super(task);
+        this.priority = priority;
+        this.rank = getQueuedNanos() - priority * agingNanos;
+        this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(PriorityTask other) {
+        // compared by difference, System.nanoTime() might overflow.
+        long diff = rank - other.rank;
+        if (diff != 0) {
+            return diff < 0 ? -1 : 1;
+        }
+        return Long.compare(sequence, other.sequence);
+    }
+
+    int getPriority() {
+        return priority;
+    }
+
+}
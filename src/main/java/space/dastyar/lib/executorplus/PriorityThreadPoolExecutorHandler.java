@@ -0,0 +1,169 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PriorityThreadPoolExecutor implementation of {@link PriorityExecutorPlus}.
+ * <br>
+ * A fixed count of workers take tasks from a priority queue of
+ * {@link PriorityTask}, tasks are wrapped when they are queued and the
+ * time they wait in the queue is recorded for each priority when a worker
+ * takes them.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class PriorityThreadPoolExecutorHandler extends ExecuteHandler implements PriorityExecutorPlus {
+
+    private static final int LEVELS = MAX_PRIORITY - MIN_PRIORITY + 1;
+
+    /**
+     * Time that raises the priority of a waiting task by one level.
+     */
+    private final long agingNanos;
+
+    /**
+     * Order of submission of tasks.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Count of started tasks of each priority.
+     */
+    private final LongAdder[] startedCounts = new LongAdder[LEVELS];
+
+    /**
+     * Total time that the started tasks of each priority have waited.
+     */
+    private final LongAdder[] waitNanos = new LongAdder[LEVELS];
+
+    /**
+     * Longest time that a started task of each priority has waited.
+     */
+    private final LongAccumulator[] maxWaitNanos = new LongAccumulator[LEVELS];
+
+    /**
+     * @param size count of workers.
+     * @param aging time that raises the priority of a waiting task by one
+     * level.
+     * @param unit the time unit of the aging argument.
+     */
+    public PriorityThreadPoolExecutorHandler(int size, long aging, TimeUnit unit) {
+        // workers are started after the fields of this class are initialized.
+        super(0, new PriorityBlockingQueue<>(), SaturationPolicy.ABORT);
+        this.agingNanos = unit.toNanos(aging);
+        for (int i = 0; i < LEVELS; i++) {
+            startedCounts[i] = new LongAdder();
+            waitNanos[i] = new LongAdder();
+            maxWaitNanos[i] = new LongAccumulator(Math::max, 0L);
+        }
+        setThreadCount(size);
+        initWorkers();
+    }
+
+    @Override
+    public void execute(Runnable task, int priority) {
+        beforeExecution(task);
+        checkPriority(priority);
+        addTask(newPriorityTask(task, priority));
+        start();
+    }
+
+    @Override
+    public ListenableFuture<?> submitWithPriority(Runnable task, int priority) {
+        beforeExecution(task);
+        checkPriority(priority);
+        ListenableFutureTask<Object> f = new ListenableFutureTask<>(task, null);
+        addTask(newPriorityTask(f, priority));
+        start();
+        return new FutureSimulator<>(f);
+    }
+
+    @Override
+    public <T> ListenableFuture<T> submitWithPriority(Callable<T> task, int priority) {
+        beforeExecution(task);
+        checkPriority(priority);
+        ListenableFutureTask<T> f = new ListenableFutureTask<>(task);
+        addTask(newPriorityTask(f, priority));
+        start();
+        return new FutureSimulator<>(f);
+    }
+
+    /**
+     * Wraps the tasks which are submitted without a priority with
+     * {@link #NORM_PRIORITY}.
+     */
+    @Override
+    protected QueuedTask wrap(Runnable task) {
+        return newPriorityTask(task, NORM_PRIORITY);
+    }
+
+    /**
+     * The priority queue orders {@link PriorityTask}, so the tasks are
+     * always wrapped.
+     */
+    @Override
+    protected Runnable toQueued(Runnable task) {
+        return wrap(task);
+    }
+
+    private PriorityTask newPriorityTask(Runnable task, int priority) {
+        return new PriorityTask(task, priority, agingNanos, sequence.getAndIncrement());
+    }
+
+    /**
+     * Records the time that the task has waited in the queue, once the
+     * task is allowed to run.
+     */
+    @Override
+    Runnable nextTask(Worker worker) throws InterruptedException {
+        Runnable task = super.nextTask(worker);
+        if (task instanceof PriorityTask) {
+            PriorityTask priorityTask = (PriorityTask) task;
+            int level = priorityTask.getPriority() - MIN_PRIORITY;
+            long wait = System.nanoTime() - priorityTask.getQueuedNanos();
+            startedCounts[level].increment();
+            waitNanos[level].add(wait);
+            maxWaitNanos[level].accumulate(wait);
+        }
+        return task;
+    }
+
+    @Override
+    public long getStartedCount(int priority) {
+        checkPriority(priority);
+        return startedCounts[priority - MIN_PRIORITY].sum();
+    }
+
+    @Override
+    public long getAverageQueueWait(int priority, TimeUnit unit) {
+        checkPriority(priority);
+        long count = startedCounts[priority - MIN_PRIORITY].sum();
+        if (count == 0) {
+            return 0;
+        }
+        return unit.convert(waitNanos[priority - MIN_PRIORITY].sum() / count, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public long getMaxQueueWait(int priority, TimeUnit unit) {
+        checkPriority(priority);
+        return unit.convert(maxWaitNanos[priority - MIN_PRIORITY].get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Checks the range of priority.
+     */
+    private void checkPriority(int priority) {
+        if (priority < MIN_PRIORITY || priority > MAX_PRIORITY) {
+            throw new IllegalArgumentException("Priority must be between " + MIN_PRIORITY
+                    + " and " + MAX_PRIORITY + ".");
+        }
+    }
+
+}
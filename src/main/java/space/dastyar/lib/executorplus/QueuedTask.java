@@ -0,0 +1,58 @@
+package space.dastyar.lib.executorplus;
+
+/**
+ * A task in the queue of {@link ExecuteHandler}, which keeps the time that
+ * it is queued so the worker which runs it can record its wait.
+ * <br>
+ * Tasks are wrapped when they are queued, unless recording of the queue
+ * wait is turned off, and unwrapped when they leave the executor without
+ * running, so the wrapper is never seen by the user.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class QueuedTask implements Runnable {
+
+    private final Runnable task;
+
+    /**
+     * The value of {@link System#nanoTime()} when the task is queued.
+     */
+    private final long queuedNanos;
+
+    /**
+     * @param task the task to run.
+     */
+    QueuedTask(Runnable task) {
+        this.task = task;
+        this.queuedNanos = System.nanoTime();
+    }
+
+    @Override
+    public void run() {
+        task.run();
+    }
+
+    /**
+     *
+     * @return the wrapped task.
+     */
+    Runnable getTask() {
+        return task;
+    }
+
+    long getQueuedNanos() {
+        return queuedNanos;
+    }
+
+    /**
+     * Returns the wrapped task if the given task is a {@link QueuedTask}.
+     *
+     * @param task a queued task.
+     * @return the task which is given by the user.
+     */
+    static Runnable unwrap(Runnable task) {
+        return task instanceof QueuedTask ? ((QueuedTask) task).getTask() : task;
+    }
+
+}
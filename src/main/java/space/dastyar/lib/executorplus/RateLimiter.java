@@ -0,0 +1,307 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A token bucket which limits the rate that the threads of an executor start
+ * tasks at.
+ * <br>
+ * The bucket holds up to {@link burst} permits and gains one permit every
+ * {@link nanosPerPermit}, a thread reserves a permit before it takes a task
+ * and releases the reservation once it knows whether it has got a task, so
+ * no task is taken out of the queue beyond the rate. The reserved permits
+ * count against {@link burst}, so the threads which wait for a task with a
+ * reserved permit can not start more than {@link burst} tasks at once. The
+ * permits are computed from the elapsed time when they are asked for, so
+ * there is no timer. A thread which finds no permit waits on a single
+ * condition until the next permit is due, which is signalled when the rate
+ * changes. The limiter is disabled by default and then it costs a volatile
+ * read for each task.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class RateLimiter {
+
+    private volatile boolean limited;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Signalled when the rate is changed.
+     */
+    private final Condition changed = lock.newCondition();
+
+    /**
+     * Time that it takes to gain one permit, guarded by {@link lock}.
+     */
+    private double nanosPerPermit;
+
+    /**
+     * Maximum count of stored permits, guarded by {@link lock}.
+     */
+    private double burst;
+
+    /**
+     * Count of stored permits, might be fractional, guarded by {@link lock}.
+     */
+    private double permits;
+
+    /**
+     * Count of permits which are reserved and not released yet, guarded by
+     * {@link lock}.
+     */
+    private int reserved;
+
+    /**
+     * Time of the last update of {@link permits}, guarded by {@link lock}.
+     */
+    private long updatedNanos;
+
+    /**
+     * Count of waits for a permit, guarded by {@link lock}.
+     */
+    private long waitCount;
+
+    /**
+     * Total time of the waits for a permit, guarded by {@link lock}.
+     */
+    private long waitNanos;
+
+    /**
+     * Changes the rate, the stored permits are kept up to the new burst. A
+     * limiter which was disabled starts with a full bucket.
+     *
+     * @param permitsPerSecond the rate or {@code 0} to disable the limiter.
+     * @param burst maximum count of permits which are stored while there is
+     * no task.
+     */
+    void setRate(double permitsPerSecond, int burst) {
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (permitsPerSecond == 0) {
+                limited = false;
+            } else {
+                if (limited) {
+                    refill(now);
+                    permits = Math.max(0, Math.min(permits, burst - reserved));
+                } else {
+                    // the reservations of a disabled limiter are not released.
+                    reserved = 0;
+                    permits = burst;
+                }
+                nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+                this.burst = burst;
+                updatedNanos = now;
+                limited = true;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return {@link limited}
+     */
+    boolean isLimited() {
+        return limited;
+    }
+
+    /**
+     * Reserves a permit if there is any, a reservation must be released by
+     * {@link #release(boolean)}.
+     *
+     * @return {@code true} if a permit is reserved or the limiter is disabled.
+     */
+    boolean tryAcquire() {
+        if (!limited) {
+            return true;
+        }
+        lock.lock();
+        try {
+            if (!limited) {
+                return true;
+            }
+            refill(System.nanoTime());
+            if (permits >= 1) {
+                permits--;
+                reserved++;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until a permit is available and reserves it, or until the
+     * limiter is disabled. A reservation must be released by
+     * {@link #release(boolean)}.
+     *
+     * @return {@code true} if a permit is reserved, {@code false} if the
+     * limiter is disabled.
+     * @throws InterruptedException if interrupted while waiting, no permit
+     * is reserved then.
+     */
+    boolean acquire() throws InterruptedException {
+        if (!limited) {
+            return false;
+        }
+        lock.lock();
+        long start = System.nanoTime();
+        boolean waited = false;
+        try {
+            while (limited) {
+                refill(System.nanoTime());
+                if (permits >= 1) {
+                    permits--;
+                    reserved++;
+                    return true;
+                }
+                waited = true;
+                changed.awaitNanos((long) Math.ceil((1 - permits) * nanosPerPermit));
+            }
+            return false;
+        } finally {
+            if (waited) {
+                waitCount++;
+                waitNanos += System.nanoTime() - start;
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes a permit for a task which is taken without a reservation, since
+     * the limiter was enabled while the thread was waiting for the task. The
+     * bucket goes below zero if it is empty, so the next permits are due
+     * later and the average rate is kept.
+     */
+    void charge() {
+        if (!limited) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (limited) {
+                refill(System.nanoTime());
+                permits--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a permit which is reserved by {@link #tryAcquire()} or
+     * {@link #acquire()}, an unused permit goes back to the bucket.
+     *
+     * @param used whether a task is taken with the permit.
+     */
+    void release(boolean used) {
+        if (!limited) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (reserved == 0) {
+                // reserved before the limiter was enabled.
+                return;
+            }
+            reserved--;
+            if (!used) {
+                permits++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until a permit is available or the limiter is disabled, the
+     * permit is not reserved, so the thread must try to reserve it again.
+     *
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    void awaitPermit() throws InterruptedException {
+        lock.lock();
+        long start = System.nanoTime();
+        try {
+            while (limited) {
+                long now = System.nanoTime();
+                refill(now);
+                if (permits >= 1) {
+                    return;
+                }
+                changed.awaitNanos((long) Math.ceil((1 - permits) * nanosPerPermit));
+            }
+        } finally {
+            waitCount++;
+            waitNanos += System.nanoTime() - start;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the permits which are gained since {@link updatedNanos}.
+     */
+    private void refill(long now) {
+        double max = burst - reserved;
+        if (permits < max) {
+            permits = Math.min(max, permits + (now - updatedNanos) / nanosPerPermit);
+        }
+        updatedNanos = now;
+    }
+
+    /**
+     * Returns the count of whole permits which can be reserved right now.
+     *
+     * @return the count or {@link Integer#MAX_VALUE} if the limiter is
+     * disabled.
+     */
+    int getAvailablePermits() {
+        if (!limited) {
+            return Integer.MAX_VALUE;
+        }
+        lock.lock();
+        try {
+            if (!limited) {
+                return Integer.MAX_VALUE;
+            }
+            refill(System.nanoTime());
+            return (int) permits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return {@link waitCount}
+     */
+    long getWaitCount() {
+        lock.lock();
+        try {
+            return waitCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return {@link waitNanos}
+     */
+    long getWaitNanos() {
+        lock.lock();
+        try {
+            return waitNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,430 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded lock free queue of tasks for many producers and many consumers,
+ * on a pre-allocated ring buffer.
+ * <br>
+ * Each slot of the ring has a sequence which tells whose turn it is: a
+ * producer claims the slot of position {@code p} when its sequence is
+ * {@code p}, by moving {@link tail} forward with a CAS, and publishes the
+ * task by setting the sequence to {@code p + 1}. A consumer claims it when
+ * the sequence is {@code p + 1} by moving {@link head} and frees it for the
+ * next lap by setting the sequence to {@code p + capacity}. So producers and
+ * consumers only contend on their own counter and nothing is allocated per
+ * task.
+ * <br>
+ * A task can be removed from the middle of the ring by replacing it with
+ * {@link REMOVED} which consumers skip. Such a slot still takes up capacity
+ * and is counted in {@link #size()} until a consumer skips it, so removal is
+ * only meant for rare cases and the executor keeps forked tasks out of the
+ * ring.
+ * <br>
+ * A consumer which finds the ring empty waits according to the
+ * {@link WaitStrategy}. A parked consumer is registered in {@link waiters}
+ * and is unparked by the next producer.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class RingBufferQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    /**
+     * Replaces a removed task in its slot.
+     */
+    private static final Object REMOVED = new Object();
+
+    /**
+     * Count of the empty polls that {@link WaitStrategy#BACKOFF_PARK} spins
+     * and then yields for before parking.
+     */
+    private static final int SPINS = 100;
+    private static final int YIELDS = 100;
+
+    /**
+     * Maximum time that a producer parks while the ring is full, consumers
+     * do not unpark producers.
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Largest capacity of the ring, which is a power of two.
+     */
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * A counter padded to the size of a cache line, so the head and the tail
+     * do not share one.
+     */
+    @SuppressWarnings({"unused", "serial"})
+    private static final class Sequence extends AtomicLong {
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+
+    }
+
+    private final AtomicReferenceArray<Object> buffer;
+
+    /**
+     * The sequence of each slot of {@link buffer}.
+     */
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    /**
+     * Position of the next task to take.
+     */
+    private final Sequence head = new Sequence();
+
+    /**
+     * Position of the next task to put.
+     */
+    private final Sequence tail = new Sequence();
+
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Consumers which are parked or about to park.
+     */
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param capacity the minimum capacity of the queue, it is rounded up to
+     * a power of two and is at least two.
+     * @param waitStrategy how a consumer waits for a task.
+     * @throws IllegalArgumentException if {@code capacity <= 0} or
+     * {@code capacity > 2^30}.
+     * @throws NullPointerException if {@code waitStrategy} is null.
+     */
+    RingBufferQueue(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity can not be zero or less.");
+        }
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Queue capacity can not be more than " + MAX_CAPACITY + ".");
+        }
+        if (waitStrategy == null) {
+            throw new NullPointerException("Wait strategy can not be null!");
+        }
+        // a ring of one slot can not tell a full slot from a free one.
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * @return the capacity of the ring.
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return {@link waitStrategy}
+     */
+    WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("Task can not be null!");
+        }
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    buffer.lazySet(index, task);
+                    sequences.lazySet(index, position + 1);
+                    signalWaiter();
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // the slot is not freed from the previous lap.
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        long position = head.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    Object task = buffer.getAndSet(index, null);
+                    sequences.lazySet(index, position + mask + 1);
+                    if (task != REMOVED) {
+                        return (Runnable) task;
+                    }
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                // the slot is not published yet.
+                return null;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        for (long position = head.get(), end = tail.get(); position < end; position++) {
+            Object task = buffer.get((int) position & mask);
+            if (task instanceof Runnable) {
+                return (Runnable) task;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes one occurrence of the given task, if it is not taken yet.
+     */
+    @Override
+    public boolean remove(Object task) {
+        if (task == null) {
+            return false;
+        }
+        for (long position = head.get(), end = tail.get(); position < end; position++) {
+            if (buffer.compareAndSet((int) position & mask, task, REMOVED)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tail.get() <= head.get();
+    }
+
+    /**
+     * @return a snapshot of the queued tasks, which does not support
+     * removal.
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        List<Runnable> snapshot = new ArrayList<>();
+        for (long position = head.get(), end = tail.get(); position < end; position++) {
+            Object task = buffer.get((int) position & mask);
+            if (task instanceof Runnable) {
+                snapshot.add((Runnable) task);
+            }
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        for (int round = 0; !offer(task); round++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            backOff(round, MAX_PARK_NANOS);
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int round = 0; !offer(task); round++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            long nanos = deadline - System.nanoTime();
+            if (nanos <= 0) {
+                return false;
+            }
+            backOff(round, Math.min(nanos, MAX_PARK_NANOS));
+        }
+        return true;
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        return await(false, 0);
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return await(true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Waits for a task according to {@link waitStrategy}.
+     *
+     * @param timed {@code true} if the wait is limited.
+     * @param nanos the maximum time to wait.
+     * @return the task or {@code null} if the time elapsed.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private Runnable await(boolean timed, long nanos) throws InterruptedException {
+        long deadline = timed ? System.nanoTime() + nanos : 0L;
+        for (int round = 0;; round++) {
+            Runnable task = poll();
+            if (task != null) {
+                // passes on a wake up which this consumer may have taken.
+                if (!isEmpty()) {
+                    signalWaiter();
+                }
+                return task;
+            }
+            if (Thread.interrupted()) {
+                passOnWakeUp();
+                throw new InterruptedException();
+            }
+            if (timed) {
+                nanos = deadline - System.nanoTime();
+                if (nanos <= 0) {
+                    passOnWakeUp();
+                    return null;
+                }
+            }
+            idle(round, timed, nanos);
+        }
+    }
+
+    /**
+     * Runs between two empty polls of a consumer.
+     */
+    private void idle(int round, boolean timed, long nanos) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                return;
+            case YIELD:
+                Thread.yield();
+                return;
+            default:
+                if (round < SPINS) {
+                    return;
+                }
+                if (round < SPINS + YIELDS) {
+                    Thread.yield();
+                    return;
+                }
+                Thread current = Thread.currentThread();
+                waiters.add(current);
+                // a producer which has not seen this consumer in waiters has
+                // moved the tail already.
+                if (isEmpty()) {
+                    if (timed) {
+                        LockSupport.parkNanos(this, nanos);
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+                waiters.remove(current);
+        }
+    }
+
+    /**
+     * Runs between two failed offers of a producer.
+     */
+    private void backOff(int round, long nanos) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                return;
+            case YIELD:
+                Thread.yield();
+                return;
+            default:
+                if (round < SPINS) {
+                    return;
+                }
+                if (round < SPINS + YIELDS) {
+                    Thread.yield();
+                    return;
+                }
+                LockSupport.parkNanos(this, nanos);
+        }
+    }
+
+    /**
+     * Unparks a waiting consumer, if there is any.
+     */
+    private void signalWaiter() {
+        if (!waiters.isEmpty()) {
+            Thread waiter = waiters.poll();
+            if (waiter != null) {
+                LockSupport.unpark(waiter);
+            }
+        }
+    }
+
+    /**
+     * Runs when a consumer leaves without a task, it may have been unparked
+     * for a task which is still queued.
+     */
+    private void passOnWakeUp() {
+        if (!isEmpty()) {
+            signalWaiter();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return capacity() - size();
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int count = 0;
+        Runnable task;
+        while (count < maxElements && (task = poll()) != null) {
+            c.add(task);
+            count++;
+        }
+        return count;
+    }
+
+}
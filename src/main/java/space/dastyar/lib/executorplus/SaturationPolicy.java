@@ -0,0 +1,47 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Decides what happens to a new task when the bounded queue of tasks of an
+ * {@link ExecutorPlus} is full.<br>
+ * Use {@link ExecutorPlus#getSaturationCount(SaturationPolicy)} to see how
+ * often the executor has been saturated.
+ *
+ * @see ExecutorPlusFactory
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public enum SaturationPolicy {
+
+    /**
+     * Blocks the submitting thread until there is space in the queue. If the
+     * submitting thread is interrupted while waiting the task is rejected
+     * with a {@link RejectedExecutionException}.
+     */
+    BLOCK,
+
+    /**
+     * Runs the task in the submitting thread.
+     */
+    CALLER_RUNS,
+
+    /**
+     * Removes the oldest queued task and queues the new one. A removed task
+     * which is a {@link Future} is cancelled.
+     */
+    DISCARD_OLDEST,
+
+    /**
+     * Drops the new task. A dropped task which is a {@link Future} is
+     * cancelled, so the Future returned by {@code submit} does not block
+     * forever.
+     */
+    DISCARD_NEWEST,
+
+    /**
+     * Rejects the new task with a {@link RejectedExecutionException}.
+     */
+    ABORT
+}
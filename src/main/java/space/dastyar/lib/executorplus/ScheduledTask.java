@@ -0,0 +1,113 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A delayed or periodic task of {@link ExecuteHandler} which waits in a
+ * {@link TimingWheel} until it is due and then is queued like any other
+ * task.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class ScheduledTask<V> extends FutureTask<V> implements ScheduledFuture<V> {
+
+    private final ExecuteHandler executor;
+
+    /**
+     * Period of repeating in nanoseconds, a positive value for a fixed rate,
+     * a negative value for a fixed delay and zero for a one shot task.
+     */
+    private final long period;
+
+    /**
+     * The value of {@link System#nanoTime()} when the task is due.
+     */
+    private volatile long time;
+
+    /**
+     * The timeout of the current wait of the task.
+     */
+    private volatile TimingWheel.Timeout timeout;
+
+    /**
+     * Creates a one shot task.
+     */
+    ScheduledTask(ExecuteHandler executor, Callable<V> task, long time) {
+        super(task);
+        this.executor = executor;
+        this.time = time;
+        this.period = 0;
+    }
+
+    /**
+     * Creates a one shot or periodic task.
+     */
+    ScheduledTask(ExecuteHandler executor, Runnable task, V result, long time, long period) {
+        super(task, result);
+        this.executor = executor;
+        this.time = time;
+        this.period = period;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(time - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        if (other == this) {
+            return 0;
+        }
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+    boolean isPeriodic() {
+        return period != 0;
+    }
+
+    /**
+     * Runs the task and schedules its next run if it is periodic and has
+     * completed normally.
+     */
+    @Override
+    public void run() {
+        if (!isPeriodic()) {
+            super.run();
+        } else if (super.runAndReset()) {
+            time = period > 0 ? time + period : System.nanoTime() - period;
+            executor.reschedule(this);
+        }
+    }
+
+    /**
+     * Cancels the task and removes it from the timing wheel if it is not
+     * due yet.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            executor.cancelTimeout(this);
+        }
+        return cancelled;
+    }
+
+    long getTime() {
+        return time;
+    }
+
+    TimingWheel.Timeout getTimeout() {
+        return timeout;
+    }
+
+    void setTimeout(TimingWheel.Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+}
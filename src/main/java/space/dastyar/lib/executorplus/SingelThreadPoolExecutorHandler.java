@@ -1,5 +1,7 @@
 package space.dastyar.lib.executorplus;
 
+import java.util.concurrent.BlockingQueue;
+
 /**
  * SingelThreadPoolExecutor implementation of {@link ExecutorPlus}.
  * 
@@ -11,4 +13,15 @@ package space.dastyar.lib.executorplus;
     public SingelThreadPoolExecutorHandler() {
         super(1);
     }
+
+    public SingelThreadPoolExecutorHandler(BlockingQueue<Runnable> tasks,
+            SaturationPolicy saturationPolicy) {
+        super(1, tasks, saturationPolicy);
+    }
+
+    @Override
+    public void setPoolSize(int size) {
+        throw new UnsupportedOperationException("A single thread pool always has one thread.");
+    }
+
 }
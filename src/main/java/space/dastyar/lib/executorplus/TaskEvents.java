@@ -0,0 +1,60 @@
+package space.dastyar.lib.executorplus;
+
+/**
+ * Emits the Java Flight Recorder events of the life-cycle of tasks and
+ * workers.
+ * <br>
+ * Note: this is the Java 8 version which does nothing, so the calls are
+ * removed by the JIT compiler. The multi-release jar contains a Java 11
+ * version which emits the events while a recording has enabled them.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+final class TaskEvents {
+
+    private TaskEvents() {
+    }
+
+    /**
+     * A task is added to the queue of the pool.
+     */
+    static void taskQueued(String pool) {
+    }
+
+    /**
+     * A worker has taken a task from the queue.
+     *
+     * @param queuedNanos the value of {@link System#nanoTime()} when the task
+     * is queued.
+     */
+    static void taskDequeued(String pool, Thread worker, long queuedNanos) {
+    }
+
+    /**
+     * A worker is starting a task.
+     */
+    static void taskStarted(String pool, Thread worker) {
+    }
+
+    /**
+     * A worker has finished a task, normally or by a failure.
+     *
+     * @param failure the exception of the task or {@code null}.
+     */
+    static void taskFinished(String pool, Thread worker, long durationNanos, Throwable failure) {
+    }
+
+    static void paused(String pool) {
+    }
+
+    static void resumed(String pool) {
+    }
+
+    static void workerStarted(String pool, Thread worker) {
+    }
+
+    static void workerExited(String pool, Thread worker) {
+    }
+
+}
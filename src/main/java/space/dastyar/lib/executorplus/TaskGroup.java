@@ -0,0 +1,113 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A group of tasks which run in an {@link ExecutorPlus} and are waited for,
+ * cancelled and failed together, apart from the other tasks of the
+ * executor. So one executor can serve many independent jobs, each one
+ * waits only for its own tasks.
+ * <br>
+ * A task of the group is done when it completes, normally, exceptionally
+ * or by cancellation. A fail-fast group cancels the rest of its tasks when
+ * one of them throws an exception, and a group which is cancelled or has
+ * failed does not accept new tasks.
+ *
+ * @see ExecutorPlus#newTaskGroup()
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public interface TaskGroup {
+
+    /**
+     * Executes the given task in the executor as a task of this group.
+     * The exception of the task is kept by the group, it does not reach
+     * the thread which runs the task.
+     *
+     * @param task the task to execute
+     * @throws RejectedExecutionException if the group is cancelled or has
+     * failed, or if the executor can not accept the task
+     * @throws NullPointerException if the task is null
+     */
+    public void execute(Runnable task);
+
+    /**
+     * Submits the given task to the executor as a task of this group.
+     *
+     * @param task the task to submit
+     * @return a Future representing pending completion of the task
+     * @throws RejectedExecutionException if the group is cancelled or has
+     * failed, or if the executor can not accept the task
+     * @throws NullPointerException if the task is null
+     */
+    public ListenableFuture<?> submit(Runnable task);
+
+    /**
+     * Submits the given value-returning task to the executor as a task of
+     * this group.
+     *
+     * @param task the task to submit
+     * @param <T> the type of the task's result
+     * @return a Future representing pending completion of the task
+     * @throws RejectedExecutionException if the group is cancelled or has
+     * failed, or if the executor can not accept the task
+     * @throws NullPointerException if the task is null
+     */
+    public <T> ListenableFuture<T> submit(Callable<T> task);
+
+    /**
+     * Blocks until all of the tasks of this group are done.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException with the first exception which is thrown
+     * by a task of this group, if there is any
+     */
+    public void await() throws InterruptedException, ExecutionException;
+
+    /**
+     * Blocks until all of the tasks of this group are done, or the timeout
+     * occurs, whichever happens first.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the time unit of the timeout argument
+     * @return {@code true} if all of the tasks are done and {@code false}
+     * if the timeout elapsed before
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException with the first exception which is thrown
+     * by a task of this group, if there is any
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException;
+
+    /**
+     * Cancels all of the tasks of this group which are not done yet and
+     * interrupts the running ones, the group does not accept new tasks
+     * after that.
+     */
+    public void cancelAll();
+
+    /**
+     * @return {@code true} if any task of this group is queued or running.
+     */
+    public boolean isBusy();
+
+    /**
+     * @return count of the tasks of this group which are queued or running.
+     */
+    public long getInFlightCount();
+
+    /**
+     * @return {@code true} if {@link #cancelAll()} is called or a task of
+     * this fail-fast group has failed.
+     */
+    public boolean isCancelled();
+
+    /**
+     * @return the first exception which is thrown by a task of this group
+     * or {@code null}.
+     */
+    public Throwable getFailure();
+
+}
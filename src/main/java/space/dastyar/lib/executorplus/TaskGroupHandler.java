@@ -0,0 +1,242 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementation of {@link TaskGroup}, each task of the group runs as a
+ * {@link GroupTask} in the executor, which reports its completion to the
+ * group.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class TaskGroupHandler implements TaskGroup {
+
+    /**
+     * A task of the group.
+     */
+    private final class GroupTask<T> extends ListenableFutureTask<T> {
+
+        GroupTask(Callable<T> task) {
+            super(task);
+        }
+
+        GroupTask(Runnable task, T result) {
+            super(task, result);
+        }
+
+        @Override
+        protected void done() {
+            super.done();
+            taskDone(this);
+        }
+
+    }
+
+    private final ExecutorPlus executor;
+
+    /**
+     * Indicates that the rest of the tasks are cancelled when a task fails.
+     */
+    private final boolean failFast;
+
+    /**
+     * Count of the tasks of the group which are not done.
+     */
+    private final AtomicLong inFlight = new AtomicLong();
+
+    /**
+     * The tasks of the group which are not done, to be cancelled by
+     * {@link cancelAll()}.
+     */
+    private final Set<GroupTask<?>> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The first exception which is thrown by a task.
+     */
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Indicates that the group does not accept new tasks.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Guards {@link idle}.
+     */
+    private final ReentrantLock idleLock = new ReentrantLock();
+
+    /**
+     * Signaled when {@link inFlight} reaches zero.
+     */
+    private final Condition idle = idleLock.newCondition();
+
+    /**
+     * @param executor the executor which runs the tasks.
+     * @param failFast {@code true} if the rest of the tasks should be
+     * cancelled when a task fails.
+     */
+    TaskGroupHandler(ExecutorPlus executor, boolean failFast) {
+        this.executor = executor;
+        this.failFast = failFast;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        beforeExecution(task);
+        run(new GroupTask<>(task, null));
+    }
+
+    @Override
+    public ListenableFuture<?> submit(Runnable task) {
+        beforeExecution(task);
+        return new FutureSimulator<>(run(new GroupTask<>(task, null)));
+    }
+
+    @Override
+    public <T> ListenableFuture<T> submit(Callable<T> task) {
+        beforeExecution(task);
+        return new FutureSimulator<>(run(new GroupTask<>(task)));
+    }
+
+    /**
+     * Validates the task and the state of the group.
+     */
+    private void beforeExecution(Object task) {
+        if (task == null) {
+            throw new NullPointerException("Task can not be null!");
+        }
+        if (cancelled) {
+            throw new RejectedExecutionException("Task group is cancelled!");
+        }
+    }
+
+    /**
+     * Counts the task as in flight and executes it in the executor.
+     *
+     * @return the given task.
+     */
+    private <T> GroupTask<T> run(GroupTask<T> task) {
+        inFlight.incrementAndGet();
+        pending.add(task);
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            pending.remove(task);
+            finished();
+            throw e;
+        }
+        // cancelled meanwhile, so cancelAll might have missed the task.
+        if (cancelled) {
+            task.cancel(true);
+        }
+        return task;
+    }
+
+    /**
+     * Runs when a task of the group is done.
+     */
+    private void taskDone(GroupTask<?> task) {
+        Throwable thrown = task.getFailure();
+        if (thrown != null && failure.compareAndSet(null, thrown) && failFast) {
+            cancelAll();
+        }
+        if (pending.remove(task)) {
+            finished();
+        }
+    }
+
+    /**
+     * Subtracts a task from {@link inFlight} and wakes up the waiters when
+     * it reaches zero.
+     */
+    private void finished() {
+        if (inFlight.decrementAndGet() == 0) {
+            idleLock.lock();
+            try {
+                idle.signalAll();
+            } finally {
+                idleLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public void await() throws InterruptedException, ExecutionException {
+        idleLock.lock();
+        try {
+            while (inFlight.get() > 0) {
+                idle.await();
+            }
+        } finally {
+            idleLock.unlock();
+        }
+        checkFailure();
+    }
+
+    @Override
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException {
+        long nanos = unit.toNanos(timeout);
+        idleLock.lock();
+        try {
+            while (inFlight.get() > 0) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = idle.awaitNanos(nanos);
+            }
+        } finally {
+            idleLock.unlock();
+        }
+        checkFailure();
+        return true;
+    }
+
+    /**
+     * @throws ExecutionException if a task has failed.
+     */
+    private void checkFailure() throws ExecutionException {
+        Throwable thrown = failure.get();
+        if (thrown != null) {
+            throw new ExecutionException(thrown);
+        }
+    }
+
+    @Override
+    public void cancelAll() {
+        cancelled = true;
+        for (GroupTask<?> task : pending) {
+            task.cancel(true);
+        }
+    }
+
+    @Override
+    public boolean isBusy() {
+        return inFlight.get() > 0;
+    }
+
+    @Override
+    public long getInFlightCount() {
+        return inFlight.get();
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public Throwable getFailure() {
+        return failure.get();
+    }
+
+}
@@ -0,0 +1,176 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Records the statistics of the tasks which are run by one thread.
+ * <br>
+ * A recorder has a single writer, each {@link Worker} owns one, so
+ * recording needs no atomic update, each field is written by an ordered
+ * store ({@code lazySet}) which costs no fence on the writer. Readers copy
+ * the fields without synchronization, they see whole values which might be
+ * slightly old and might not be consistent with each other.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class TaskRecorder {
+
+    /**
+     * Counts of a duration, see {@link LatencyHistogram}.
+     */
+    static final class Durations {
+
+        private static final AtomicLongFieldUpdater<Durations> TOTAL_NANOS
+                = AtomicLongFieldUpdater.newUpdater(Durations.class, "totalNanos");
+
+        private static final AtomicLongFieldUpdater<Durations> MAX_NANOS
+                = AtomicLongFieldUpdater.newUpdater(Durations.class, "maxNanos");
+
+        private final AtomicLongArray counts = new AtomicLongArray(LatencyHistogram.BUCKETS);
+
+        private volatile long totalNanos;
+
+        private volatile long maxNanos;
+
+        void record(long nanos) {
+            int bucket = LatencyHistogram.bucketOf(nanos);
+            counts.lazySet(bucket, counts.get(bucket) + 1);
+            TOTAL_NANOS.lazySet(this, totalNanos + nanos);
+            if (nanos > maxNanos) {
+                MAX_NANOS.lazySet(this, nanos);
+            }
+        }
+
+        void add(Durations other) {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.lazySet(i, counts.get(i) + other.counts.get(i));
+            }
+            TOTAL_NANOS.lazySet(this, totalNanos + other.totalNanos);
+            MAX_NANOS.lazySet(this, Math.max(maxNanos, other.maxNanos));
+        }
+
+        LatencyHistogram snapshot() {
+            long[] copy = new long[counts.length()];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = counts.get(i);
+            }
+            return new LatencyHistogram(copy, totalNanos, maxNanos);
+        }
+
+    }
+
+    private static final AtomicLongFieldUpdater<TaskRecorder> COMPLETED
+            = AtomicLongFieldUpdater.newUpdater(TaskRecorder.class, "completed");
+
+    private static final AtomicLongFieldUpdater<TaskRecorder> FAILED
+            = AtomicLongFieldUpdater.newUpdater(TaskRecorder.class, "failed");
+
+    private static final AtomicLongFieldUpdater<TaskRecorder> BUSY_NANOS
+            = AtomicLongFieldUpdater.newUpdater(TaskRecorder.class, "busyNanos");
+
+    private volatile long completed;
+
+    private volatile long failed;
+
+    private volatile long busyNanos;
+
+    /**
+     * The value of {@link System#nanoTime()} when the recorder is created.
+     */
+    private final long createdNanos = System.nanoTime();
+
+    private final Durations queueWait = new Durations();
+
+    private final Durations executionTime = new Durations();
+
+    /**
+     * Records a task which has run.
+     *
+     * @param task the task, its queue wait is recorded if it is a
+     * {@link QueuedTask}.
+     * @param start the value of {@link System#nanoTime()} when the task started.
+     * @param end the value of {@link System#nanoTime()} when the task finished.
+     * @param failure the failure of the task or {@code null}, see
+     * {@link #failureOf(Runnable, Throwable)}.
+     */
+    void record(Runnable task, long start, long end, Throwable failure) {
+        COMPLETED.lazySet(this, completed + 1);
+        if (failure != null) {
+            FAILED.lazySet(this, failed + 1);
+        }
+        BUSY_NANOS.lazySet(this, busyNanos + end - start);
+        executionTime.record(end - start);
+        if (task instanceof QueuedTask) {
+            queueWait.record(start - ((QueuedTask) task).getQueuedNanos());
+        }
+    }
+
+    /**
+     * Returns the exception which a task has thrown to the worker or has
+     * kept for its future.
+     *
+     * @param task the task which has run.
+     * @param thrown the exception which is thrown to the worker or
+     * {@code null}.
+     * @return the exception or {@code null} if the task has not failed.
+     */
+    static Throwable failureOf(Runnable task, Throwable thrown) {
+        if (thrown != null) {
+            return thrown;
+        }
+        task = QueuedTask.unwrap(task);
+        if (task instanceof KeyedLanes.Lane) {
+            task = ((KeyedLanes.Lane) task).getLastRun();
+        }
+        if (task instanceof ListenableFutureTask) {
+            return ((ListenableFutureTask<?>) task).getFailure();
+        }
+        if (task instanceof AsyncTask) {
+            return ((AsyncTask<?>) task).getFailure();
+        }
+        return null;
+    }
+
+    /**
+     * Adds the records of another recorder to this one, the caller must be
+     * the only writer of this recorder meanwhile.
+     */
+    void add(TaskRecorder other) {
+        COMPLETED.lazySet(this, completed + other.completed);
+        FAILED.lazySet(this, failed + other.failed);
+        BUSY_NANOS.lazySet(this, busyNanos + other.busyNanos);
+        queueWait.add(other.queueWait);
+        executionTime.add(other.executionTime);
+    }
+
+    long getCompleted() {
+        return completed;
+    }
+
+    long getFailed() {
+        return failed;
+    }
+
+    Durations getQueueWait() {
+        return queueWait;
+    }
+
+    Durations getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * Returns the statistics of the thread which owns this recorder, its
+     * idle time is the time since creation which is not spent on tasks.
+     *
+     * @param name name of the thread.
+     */
+    WorkerStats toWorkerStats(String name) {
+        long busy = busyNanos;
+        long idle = Math.max(0, System.nanoTime() - createdNanos - busy);
+        return new WorkerStats(name, completed, busy, idle);
+    }
+
+}
@@ -0,0 +1,378 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * A hashed timing wheel which hands tasks to a consumer when their deadline
+ * is reached.
+ * <br>
+ * The wheel is an array of buckets and each bucket is a linked list of
+ * timeouts, a single ticker thread visits one bucket per tick and expires
+ * the timeouts of the bucket which have no round left. Other threads never
+ * touch the buckets: {@link #add} and {@link #cancel} only put the timeout
+ * in a lock free queue which the ticker applies on its next tick, so both
+ * of them are O(1) regardless of the count of pending timeouts.
+ * <br>
+ * The ticker is created on the first {@link #add} and parks while there is
+ * no pending timeout.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class TimingWheel {
+
+    private static final int PENDING = 0;
+    private static final int EXPIRED = 1;
+    private static final int CANCELLED = 2;
+
+    /**
+     * Maximum count of added timeouts that are moved into the wheel in one
+     * tick, so a burst of timeouts does not delay expiration.
+     */
+    private static final int TRANSFER_LIMIT = 100_000;
+
+    /**
+     * A task which waits in the wheel.
+     */
+    static final class Timeout {
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE
+                = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final Runnable task;
+
+        /**
+         * The value of {@link System#nanoTime()} when the task is due.
+         */
+        private final long deadline;
+
+        private volatile int state = PENDING;
+
+        // the following fields are only used by the ticker.
+        private long remainingRounds;
+        private Timeout prev;
+        private Timeout next;
+        private Bucket bucket;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        private boolean compareAndSetState(int expect, int update) {
+            return STATE.compareAndSet(this, expect, update);
+        }
+
+    }
+
+    /**
+     * A doubly linked list of timeouts, only used by the ticker.
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+    }
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    /**
+     * Timeouts which are added and not yet moved into the wheel.
+     */
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Timeouts which are cancelled and not yet removed from the wheel.
+     */
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Count of timeouts which are neither expired nor cancelled.
+     */
+    private final AtomicLong pending = new AtomicLong();
+
+    /**
+     * Receives the tasks which are due.
+     */
+    private final Consumer<Runnable> onExpire;
+
+    /**
+     * Receives the tasks which are left in the wheel when it is stopped.
+     */
+    private final Consumer<Runnable> onDiscard;
+
+    private volatile Thread ticker;
+
+    private volatile boolean stopped;
+
+    /**
+     * Indicates that the ticker is parked until a timeout is added.
+     */
+    private volatile boolean idle;
+
+    /**
+     * @param tickNanos duration of a tick, the accuracy of the wheel.
+     * @param ticksPerWheel count of buckets, must be a power of two.
+     * @param onExpire receives the tasks which are due, in the ticker thread.
+     * @param onDiscard receives the tasks which are not due when the wheel
+     * is stopped.
+     */
+    TimingWheel(long tickNanos, int ticksPerWheel, Consumer<Runnable> onExpire, Consumer<Runnable> onDiscard) {
+        this.tickNanos = tickNanos;
+        this.wheel = new Bucket[ticksPerWheel];
+        for (int i = 0; i < ticksPerWheel; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = ticksPerWheel - 1;
+        this.onExpire = onExpire;
+        this.onDiscard = onDiscard;
+    }
+
+    /**
+     * Adds a task which is handed to {@link onExpire} at the deadline.
+     *
+     * @param task the task.
+     * @param deadline the value of {@link System#nanoTime()} when the task
+     * is due.
+     * @return the timeout which can be cancelled.
+     * @throws RejectedExecutionException if the wheel is stopped.
+     */
+    Timeout add(Runnable task, long deadline) {
+        Timeout timeout = new Timeout(task, deadline);
+        pending.incrementAndGet();
+        added.offer(timeout);
+        startTicker();
+        // the ticker might have stopped without seeing the timeout.
+        if (stopped && cancel(timeout)) {
+            throw new RejectedExecutionException("Timer is stopped!");
+        }
+        if (idle) {
+            LockSupport.unpark(ticker);
+        }
+        return timeout;
+    }
+
+    /**
+     * Cancels the timeout if it is neither expired nor cancelled.
+     *
+     * @return {@code true} if the timeout is cancelled by this call.
+     */
+    boolean cancel(Timeout timeout) {
+        if (!timeout.compareAndSetState(PENDING, CANCELLED)) {
+            return false;
+        }
+        pending.decrementAndGet();
+        cancelled.offer(timeout);
+        return true;
+    }
+
+    /**
+     * Returns count of timeouts which are neither expired nor cancelled.
+     */
+    long getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Stops the ticker and hands the pending tasks to {@link onDiscard}.
+     * Waits for the ticker unless it is called from the ticker itself.
+     */
+    void stop() {
+        stopped = true;
+        Thread thread;
+        synchronized (this) {
+            thread = ticker;
+        }
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        if (thread != Thread.currentThread()) {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Creates the ticker thread if it is not created yet.
+     */
+    private void startTicker() {
+        if (ticker != null) {
+            return;
+        }
+        synchronized (this) {
+            if (ticker == null && !stopped) {
+                Thread thread = new Thread(this::tick, "executorplus-timer");
+                thread.setDaemon(true);
+                ticker = thread;
+                thread.start();
+            }
+        }
+    }
+
+    /**
+     * The loop of the ticker thread.
+     */
+    private void tick() {
+        long startTime = System.nanoTime();
+        long tick = 0;
+        while (!stopped) {
+            if (pending.get() == 0) {
+                // the cancelled timeouts hold their tasks until they are
+                // removed, so they are not kept while the ticker is parked.
+                removeCancelled();
+                added.removeIf(timeout -> timeout.state != PENDING);
+                idle = true;
+                if (pending.get() == 0 && !stopped) {
+                    LockSupport.park(this);
+                }
+                idle = false;
+                // the wheel is empty, so the missed ticks are skipped.
+                tick = (System.nanoTime() - startTime) / tickNanos;
+                continue;
+            }
+            long deadline = startTime + (tick + 1) * tickNanos;
+            long now = System.nanoTime();
+            if (deadline - now > 0) {
+                LockSupport.parkNanos(this, deadline - now);
+                continue;
+            }
+            removeCancelled();
+            transferAdded(startTime, tick);
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+        discardAll();
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * Moves the added timeouts to their bucket.
+     */
+    private void transferAdded(long startTime, long tick) {
+        Timeout timeout;
+        for (int i = 0; i < TRANSFER_LIMIT && (timeout = added.poll()) != null; i++) {
+            if (timeout.state != PENDING) {
+                continue;
+            }
+            long calculated = (timeout.deadline - startTime) / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // a timeout which is already due goes to the current bucket.
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * Expires the timeouts of the bucket which have no round left.
+     */
+    private void expire(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                bucket.remove(timeout);
+                if (timeout.compareAndSetState(PENDING, EXPIRED)) {
+                    pending.decrementAndGet();
+                    try {
+                        onExpire.accept(timeout.task);
+                    } catch (RuntimeException e) {
+                        // the consumer handles its own failures, the ticker
+                        // must survive anyway.
+                    }
+                }
+            } else if (timeout.state == CANCELLED) {
+                bucket.remove(timeout);
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * Cancels all of the timeouts which are left and hands their tasks to
+     * {@link onDiscard}.
+     */
+    private void discardAll() {
+        for (Bucket bucket : wheel) {
+            Timeout timeout;
+            while ((timeout = bucket.head) != null) {
+                bucket.remove(timeout);
+                discard(timeout);
+            }
+        }
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            discard(timeout);
+        }
+        cancelled.clear();
+    }
+
+    private void discard(Timeout timeout) {
+        if (timeout.compareAndSetState(PENDING, CANCELLED)) {
+            pending.decrementAndGet();
+            try {
+                onDiscard.accept(timeout.task);
+            } catch (RuntimeException e) {
+                // same as expire.
+            }
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * VirtualThreadExecutor implementation of {@link ExecutorPlus}.
+ * <br>
+ * Runs each task on a new thread of the given factory, which are virtual
+ * threads in production. Tasks wait in the queue while the executor is
+ * paused or while {@link maxConcurrency} tasks are running, and the thread
+ * count is the count of the running tasks. Under a rate limit a task is
+ * taken only with a permit, when there is none a single thread of the
+ * factory waits for the next permit and dispatches again.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class VirtualThreadExecutorHandler extends ExecuteHandler {
+
+    /**
+     * Creates a thread for each task.
+     */
+    private final ThreadFactory factory;
+
+    /**
+     * Maximum count of tasks that run at the same time.
+     */
+    private final int maxConcurrency;
+
+    /**
+     * Threads which are running a task.
+     */
+    private final Set<Thread> runners = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The thread which waits for the next permit of the rate limit, if any.
+     */
+    private final AtomicReference<Thread> permitWaiter = new AtomicReference<>();
+
+    /**
+     * Statistics of the tasks, striped by thread so the threads of the
+     * tasks rarely record in the same one. Each recorder is guarded by its
+     * own monitor since it has more than one writer.
+     */
+    private final TaskRecorder[] recorders;
+
+    /**
+     * @param factory creates a thread for each task.
+     * @param maxConcurrency maximum count of tasks that run at the same time.
+     */
+    public VirtualThreadExecutorHandler(ThreadFactory factory, int maxConcurrency) {
+        this(factory, maxConcurrency, new LinkedBlockingQueue<>(), SaturationPolicy.ABORT);
+    }
+
+    /**
+     * @param factory creates a thread for each task.
+     * @param maxConcurrency maximum count of tasks that run at the same time.
+     * @param tasks the queue of waiting tasks, which might be bounded.
+     * @param saturationPolicy decides what happens to a new task when the
+     * queue is full.
+     */
+    public VirtualThreadExecutorHandler(ThreadFactory factory, int maxConcurrency,
+            BlockingQueue<Runnable> tasks, SaturationPolicy saturationPolicy) {
+        super(0, tasks, saturationPolicy);
+        this.factory = factory;
+        this.maxConcurrency = maxConcurrency;
+        int stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1) << 1);
+        this.recorders = new TaskRecorder[stripes];
+        for (int i = 0; i < stripes; i++) {
+            recorders[i] = new TaskRecorder();
+        }
+    }
+
+    @Override
+    protected void start() {
+        dispatch();
+    }
+
+    @Override
+    protected void start(int count) {
+        dispatch();
+    }
+
+    /**
+     * Starts a thread for each queued task until the queue is empty or
+     * {@link maxConcurrency} is reached.
+     */
+    private void dispatch() {
+        while (!isPaused() && !isShutdownNow()) {
+            int count = getThreadCount();
+            if (count >= maxConcurrency) {
+                return;
+            }
+            if (!compareAndSetThreadCount(count, count + 1)) {
+                continue;
+            }
+            // paused meanwhile, awaitPaused might have missed the slot.
+            if (isPaused()) {
+                releaseSlot();
+                return;
+            }
+            if (!getRateLimiter().tryAcquire()) {
+                releaseSlot();
+                awaitPermit();
+                return;
+            }
+            Runnable task = getTasks().poll();
+            getRateLimiter().release(task != null);
+            if (task == null) {
+                releaseSlot();
+                // a task might be queued while the slot was held.
+                if (getTasks().isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            factory.newThread(() -> runTask(task)).start();
+        }
+    }
+
+    /**
+     * Starts a thread which waits for the next permit and dispatches again,
+     * unless such a thread is already waiting. The waiting thread dispatches
+     * after it is cleared, so a task which is queued meanwhile is not missed.
+     */
+    private void awaitPermit() {
+        if (permitWaiter.get() != null) {
+            return;
+        }
+        Thread thread = factory.newThread(() -> {
+            try {
+                getRateLimiter().awaitPermit();
+            } catch (InterruptedException e) {
+                // shutdownNow, the queued tasks are removed.
+                return;
+            } finally {
+                permitWaiter.set(null);
+            }
+            dispatch();
+        });
+        if (permitWaiter.compareAndSet(null, thread)) {
+            thread.start();
+        }
+    }
+
+    /**
+     * Runs the task and dispatches the next queued task.
+     */
+    private void runTask(Runnable task) {
+        Thread thread = Thread.currentThread();
+        runners.add(thread);
+        Throwable thrown = null;
+        long start = System.nanoTime();
+        if (task instanceof QueuedTask) {
+            TaskEvents.taskDequeued(getName(), thread, ((QueuedTask) task).getQueuedNanos());
+        }
+        TaskEvents.taskStarted(getName(), thread);
+        try {
+            task.run();
+        } catch (RuntimeException | Error ex) {
+            thrown = ex;
+            throw ex;
+        } finally {
+            long end = System.nanoTime();
+            Throwable failure = TaskRecorder.failureOf(task, thrown);
+            TaskRecorder recorder = recorders[(int) thread.getId() & (recorders.length - 1)];
+            synchronized (recorder) {
+                recorder.record(task, start, end, failure);
+            }
+            TaskEvents.taskFinished(getName(), thread, end - start, failure);
+            runners.remove(thread);
+            releaseSlot();
+            tasksFinished(1);
+            dispatch();
+        }
+    }
+
+    /**
+     * Adds the statistics of the tasks, there is no live worker since each
+     * task runs on its own thread.
+     */
+    @Override
+    void collectStats(TaskRecorder total, List<WorkerStats> workers) {
+        super.collectStats(total, workers);
+        for (TaskRecorder recorder : recorders) {
+            synchronized (recorder) {
+                total.add(recorder);
+            }
+        }
+    }
+
+    /**
+     * Decreases the count of running tasks.
+     */
+    private void releaseSlot() {
+        int count;
+        do {
+            count = getThreadCount();
+        } while (!compareAndSetThreadCount(count, count - 1));
+        getPauseGate().taskExited();
+    }
+
+    /**
+     * A task is running while it holds a slot.
+     */
+    @Override
+    boolean hasRunningTasks() {
+        return getThreadCount() > 0;
+    }
+
+    @Override
+    public void resume() {
+        super.resume();
+        dispatch();
+    }
+
+    /**
+     * Interrupts the running tasks.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> remaining = super.shutdownNow();
+        runners.forEach(Thread::interrupt);
+        Thread waiter = permitWaiter.get();
+        if (waiter != null) {
+            waiter.interrupt();
+        }
+        return remaining;
+    }
+
+    @Override
+    public void setPoolSize(int size) {
+        throw new UnsupportedOperationException("A virtual thread executor creates a thread for each task.");
+    }
+
+}
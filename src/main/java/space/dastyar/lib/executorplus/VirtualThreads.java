@@ -0,0 +1,58 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Provides the {@link ThreadFactory} of virtual threads when the running
+ * JVM supports them (Java 21 or later).
+ * <br>
+ * Note: this is the Java 8 version which looks up the factory by reflection,
+ * the multi-release jar contains a Java 21 version which uses the API directly.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+final class VirtualThreads {
+
+    /**
+     * Factory of virtual threads or {@code null} if they are not supported.
+     */
+    private static final ThreadFactory FACTORY = lookupFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return {@code true} if the running JVM supports virtual threads.
+     */
+    static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    /**
+     * @return a factory which creates a new virtual thread for each call.
+     * @throws UnsupportedOperationException if virtual threads are not supported.
+     */
+    static ThreadFactory factory() {
+        if (FACTORY == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later.");
+        }
+        return FACTORY;
+    }
+
+    /**
+     * Calls {@code Thread.ofVirtual().name(...).factory()} by reflection.
+     */
+    private static ThreadFactory lookupFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class)
+                    .invoke(builder, "executorplus-virtual-", 0L);
+            return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,33 @@
+package space.dastyar.lib.executorplus;
+
+/**
+ * Decides what an idle thread of a ring buffer thread pool does while it
+ * waits for a task. The strategies trade CPU for the latency of handing a
+ * task to an idle thread.
+ *
+ * @see ExecutorPlusFactory#newRingBufferThreadPool(int, int, WaitStrategy)
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public enum WaitStrategy {
+
+    /**
+     * Polls the queue in a tight loop. It has the lowest latency but each
+     * idle thread keeps a CPU core busy, so it only suits pools which are
+     * not larger than the count of free cores.
+     */
+    BUSY_SPIN,
+
+    /**
+     * Polls the queue and yields the CPU between the polls. Other threads
+     * can run on the core, but an idle thread still uses CPU.
+     */
+    YIELD,
+
+    /**
+     * Spins for a while, then yields for a while and then parks until a
+     * task is queued. An idle thread uses no CPU after it parks, and a
+     * burst of tasks is taken before it does.
+     */
+    BACKOFF_PARK
+}
@@ -0,0 +1,177 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * WorkStealingExecutor implementation of {@link ExecutorPlus}.
+ * <br>
+ * Each worker owns a deque of tasks, tasks submitted from inside a worker
+ * go to its own deque and other tasks go to the shared queue. A worker
+ * which has nothing to do steals tasks from the deque of other workers.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+class WorkStealingExecutorHandler extends ExecuteHandler {
+
+    /**
+     * Workers which have found no task and are parked.
+     */
+    private final Queue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+
+    public WorkStealingExecutorHandler(int size) {
+        // workers are started after the fields of this class are initialized.
+        super();
+        setThreadCount(size);
+        initWorkers();
+    }
+
+    /**
+     * Adds the task to the local deque of the current worker or to the
+     * shared queue if the caller is not a worker of this executor.
+     */
+    @Override
+    protected void enqueue(Runnable task) {
+        Worker worker = currentWorker();
+        if (worker != null) {
+            worker.pushLocalTask(task);
+        } else {
+            super.enqueue(task);
+        }
+    }
+
+    /**
+     * Pushes the task on the head of the local tasks of the worker, so the
+     * worker runs its last forked task first while the other workers steal
+     * the oldest ones, which are the largest.
+     */
+    @Override
+    protected void enqueueFork(QueuedTask task, Worker worker) {
+        if (worker != null) {
+            worker.pushForkedTask(task);
+        } else {
+            super.enqueue(task);
+        }
+    }
+
+    /**
+     * Wakes up an idle worker if there is any.
+     */
+    @Override
+    protected void start() {
+        Worker worker = idleWorkers.poll();
+        if (worker != null) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Wakes up idle workers for at most {@code count} tasks.
+     */
+    @Override
+    protected void start(int count) {
+        Worker worker;
+        for (int i = 0; i < count && (worker = idleWorkers.poll()) != null; i++) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+    /**
+     * Takes a task from the local deque of the worker, then from the shared
+     * queue and then steals from the other workers, parks the worker if
+     * there is no task at all. A retired worker only takes its local tasks.
+     */
+    @Override
+    Runnable takeTask(Worker worker) throws InterruptedException {
+        while (true) {
+            if (worker.isRetired()) {
+                return worker.pollLocalTask();
+            }
+            Runnable task = pollTask(worker);
+            if (task != null) {
+                return task;
+            }
+            if (worker.isDead()) {
+                return null;
+            }
+            task = spinForTask(worker, () -> pollTask(worker));
+            if (task != null) {
+                return task;
+            }
+            idleWorkers.add(worker);
+            // check again, a task might be added before the worker became idle.
+            task = pollTask(worker);
+            if (task != null || worker.isDead()) {
+                idleWorkers.remove(worker);
+                return task;
+            }
+            LockSupport.park(this);
+            idleWorkers.remove(worker);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Polls a task without blocking.
+     *
+     * @return a task or {@code null} if there is no task.
+     */
+    private Runnable pollTask(Worker worker) {
+        Runnable task = worker.pollLocalTask();
+        if (task == null) {
+            task = getTasks().poll();
+            if (task != null) {
+                // the rest of the batch can be stolen by the other workers.
+                drainBatch(worker);
+            }
+        }
+        if (task == null) {
+            task = steal(worker);
+        }
+        return task;
+    }
+
+    /**
+     * Steals a task from the local deque of other workers, starting from
+     * a random worker.
+     *
+     * @param thief the worker which steals.
+     * @return stolen task or {@code null} if there is no task to steal.
+     */
+    private Runnable steal(Worker thief) {
+        // a snapshot, workers might exit meanwhile.
+        Worker[] workers = getThreads().toArray(new Worker[0]);
+        if (workers.length == 0) {
+            return null;
+        }
+        int start = ThreadLocalRandom.current().nextInt(workers.length);
+        for (int i = 0; i < workers.length; i++) {
+            Worker victim = workers[(start + i) % workers.length];
+            if (victim != thief) {
+                Runnable task = victim.stealLocalTask();
+                if (task != null) {
+                    return task;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Wakes up idle workers so they can finish after the queued tasks.
+     */
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        Worker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            LockSupport.unpark(worker);
+        }
+    }
+
+}
@@ -1,7 +1,10 @@
 package space.dastyar.lib.executorplus;
 
+import java.util.Collection;
+import java.util.Deque;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Worker is a customized thread implementation
@@ -31,58 +34,137 @@ import java.util.concurrent.Semaphore;
     private volatile boolean done = false;
 
     /**
-     * Indicates running state of thread. Setting this variable to {@code true}
-     * stop thread from taking(from {@code tasks} queue) or starting a new task.
+     * The gate which is closed while the thread is paused, shared by all of
+     * the threads of the {@link executor}. A thread does not take or start
+     * a new task while it is closed.
      */
-    private volatile boolean waited = false;
+    private final PauseGate gate;
 
     /**
-     * This variable used to efficiently block the thread when it's
-     * {@code pause}
+     * Indicates that the executor has less threads now, setting this
+     * variable to {@code true} makes thread to finish its local tasks and
+     * end its life without taking a new task.
+     * @see retire()
      */
-    private volatile Semaphore waitLock = new Semaphore(0);
+    private volatile boolean retired = false;
+
+    /**
+     * Held while a task is running, so the thread is only interrupted to
+     * retire while it is waiting for a task.
+     * @see interruptIfIdle()
+     */
+    private final ReentrantLock runLock = new ReentrantLock();
 
     /**
      * Queue of tasks that are to be done by a thread or group.
      */
     private volatile BlockingQueue<Runnable> tasks;
+
+    /**
+     * Deque of tasks that are owned by this thread, the owner takes from
+     * the head and other threads may steal from the tail.
+     */
+    private final Deque<Runnable> localTasks = new ConcurrentLinkedDeque<>();
+
+    /**
+     * The executor which has created this thread, it decides how the next
+     * task is taken or {@code null} if this thread is used on its own.
+     */
+    private final ExecutorManager executor;
     
     /**
      * Current task of thread to be done.
      */
     private Runnable currentTask;
 
+    /**
+     * Moving average of the run time of tasks in nanoseconds, it is only
+     * updated while the {@link executor} takes tasks in batches.
+     */
+    private long averageTaskNanos;
+
+    /**
+     * Statistics of the tasks run by this thread or {@code null} if there is
+     * no {@link executor}.
+     */
+    private final TaskRecorder recorder;
+
     /**
      * @param tasks the queue of task that this thread take task from.
      */
     Worker(BlockingQueue<Runnable> tasks) {
         this.tasks = tasks;
+        this.executor = null;
+        this.recorder = null;
+        this.gate = new PauseGate();
+    }
+
+    /**
+     * @param executor the executor that this thread take task from.
+     */
+    Worker(ExecutorManager executor) {
+        this.tasks = executor.getTasks();
+        this.executor = executor;
+        this.recorder = new TaskRecorder();
+        this.gate = executor.getPauseGate();
     }
 
     @Override
     public void run() {
-        while (tasks!=null && (!isDead() || tasks.size() > 0)) {
-            boolean brk=beforStart();
-            // break if any exception is thrown.
-            if (brk) {
-                break;
+        try {
+            while (tasks!=null && (!isDead() || hasPendingTasks())) {
+                boolean brk=beforStart();
+                // break if any exception is thrown.
+                if (brk) {
+                    break;
+                }
+                Throwable thrown = null;
+                long start = recorder != null ? System.nanoTime() : 0L;
+                if (executor != null) {
+                    TaskEvents.taskStarted(executor.getName(), this);
+                }
+                try {
+                    currentTask.run();
+                } catch (RuntimeException | Error ex) {
+                    thrown = ex;
+                    throw ex;
+                } finally {
+                    if (recorder != null) {
+                        record(start, thrown);
+                    }
+                    affterFinish(thrown);
+                }
+            }
+        } finally {
+            done=true;
+            if (executor != null) {
+                executor.workerExited(this);
             }
-            currentTask.run();
-            affterFinish();
         }
-        done=true;
     }
 
     /**
-     * Blocks if {@link waited} is {@code ture} or the tasks queue is empty, and
+     * Blocks if the {@link gate} is closed or the tasks queue is empty, and
      * changes state of {@link busy}.
      */
     private boolean beforStart() {
         try {
             waitIfNeeded();
-            currentTask = tasks.take();
-            waitIfNeeded();
-            busy = true;
+            currentTask = takeTask();
+            if (currentTask == null) {
+                return true;
+            }
+            if (executor != null && currentTask instanceof QueuedTask) {
+                TaskEvents.taskDequeued(executor.getName(), this, ((QueuedTask) currentTask).getQueuedNanos());
+            }
+            // a paused thread which holds a task is not idle.
+            runLock.lock();
+            enterGate();
+            // an interrupt which was meant to retire the idle thread must
+            // not reach the task, unless the thread is killed.
+            if (tasks != null) {
+                Thread.interrupted();
+            }
         } catch (Exception ex) {
             return true;
         }
@@ -90,25 +172,123 @@ import java.util.concurrent.Semaphore;
     }
 
     /**
-     * Changes busy to {@code false} after finishing a task.
+     * Takes the next task from the {@link executor} or if there is no
+     * executor, from {@link localTasks} and then {@link tasks}.
+     *
+     * @return next task or {@code null} if this thread should stop.
+     */
+    private Runnable takeTask() throws InterruptedException {
+        if (executor != null) {
+            return executor.nextTask(this);
+        }
+        Runnable task = localTasks.pollFirst();
+        return task != null ? task : tasks.take();
+    }
+
+    /**
+     * Checks whether there is any task left in {@link localTasks} or
+     * {@link tasks}.
      */
-    private void affterFinish() {
+    private boolean hasPendingTasks() {
+        BlockingQueue<Runnable> queue = tasks;
+        return !localTasks.isEmpty() || (queue != null && queue.size() > 0);
+    }
+
+    /**
+     * Runs a task which is taken out of the queue while the current task is
+     * running, like a forked task which is joined. The task must not throw.
+     *
+     * @param task the task to run.
+     */
+    void runNested(Runnable task) {
+        Runnable outer = currentTask;
+        currentTask = task;
+        long start = System.nanoTime();
+        TaskEvents.taskStarted(executor.getName(), this);
+        try {
+            task.run();
+        } finally {
+            record(start, null);
+            currentTask = outer;
+            executor.tasksFinished(1);
+        }
+    }
+
+    /**
+     * Records the finished task in {@link recorder} and emits its event,
+     * before it is reported as finished to the {@link executor}.
+     *
+     * @param start the value of {@link System#nanoTime()} when the task
+     * started.
+     * @param thrown the exception which is thrown by the task or
+     * {@code null}.
+     */
+    private void record(long start, Throwable thrown) {
+        long end = System.nanoTime();
+        Throwable failure = TaskRecorder.failureOf(currentTask, thrown);
+        recorder.record(currentTask, start, end, failure);
+        TaskEvents.taskFinished(executor.getName(), this, end - start, failure);
+        if (executor.getMaxBatchSize() > 1) {
+            averageTaskNanos += (end - start - averageTaskNanos) / 8;
+        }
+    }
+
+    /**
+     * Changes busy to {@code false} and clears the interrupt status
+     * after finishing a task.
+     *
+     * @param thrown the exception which is thrown by the task or
+     * {@code null} if the task has finished normally.
+     */
+    private void affterFinish(Throwable thrown) {
         busy = false;
+        gate.taskExited();
+        runLock.unlock();
+        // a cancelled task may leave the interrupt status behind, it should
+        // not stop the thread unless the thread is killed.
+        if (tasks != null) {
+            Thread.interrupted();
+        }
+        if (executor != null) {
+            executor.afterExecute(this, currentTask, thrown);
+        }
     }
 
     /**
-     * Waits (blocks) if needed :) using {@link waitLock}.
+     * Waits (blocks) if needed :) using {@link gate}.
      */
     private void waitIfNeeded() {
         try {
-            if (waited) {
-                waitLock.acquire();
-            }
+            gate.awaitOpen();
         } catch (InterruptedException ex) {
             this.interrupt();
         }
     }
 
+    /**
+     * Waits for the {@link gate} to be open and sets {@link busy}. The flag
+     * is set before the gate is checked, so a thread which waits for the
+     * executor to be paused either sees this thread busy or this thread sees
+     * the gate closed. An interrupted thread runs its task anyway.
+     */
+    private void enterGate() {
+        while (true) {
+            busy = true;
+            if (!gate.isClosed()) {
+                return;
+            }
+            busy = false;
+            gate.taskExited();
+            try {
+                gate.awaitOpen();
+            } catch (InterruptedException ex) {
+                busy = true;
+                this.interrupt();
+                return;
+            }
+        }
+    }
+
      /**
      * 
      * @return {@link busy}
@@ -129,10 +309,10 @@ import java.util.concurrent.Semaphore;
     
     /**
      * 
-     * @see waited
+     * @return {@code true} if the {@link gate} is closed.
      */
     boolean isWaited() {
-        return waited;
+        return gate.isClosed();
     }
     
     /**
@@ -144,15 +324,16 @@ import java.util.concurrent.Semaphore;
     }
     
     /**
-     * 
-     * @return {@link waited}
-     * 
-     * @see waited
+     * Closes or opens the {@link gate}, which is shared by all of the
+     * threads of the {@link executor}.
+     *
+     * @param waited {@code true} to pause the thread.
      */
     void setWaited(boolean waited) {
-        this.waited = waited;
-        if (!waited && waitLock.availablePermits() < 1) {
-            waitLock.release();
+        if (waited) {
+            gate.close();
+        } else {
+            gate.open();
         }
     }
 
@@ -180,6 +361,160 @@ import java.util.concurrent.Semaphore;
         dead = true;
     }
 
+    /**
+     *
+     * @return {@link retired}
+     *
+     * @see retired
+     */
+    boolean isRetired() {
+        return retired;
+    }
+
+    /**
+     * Sets {@link retired} to {@code true}, the thread ends its life after
+     * finishing the current task and its local tasks.
+     * <br/>
+     * Note: the thread might be blocked waiting for a task, see
+     * {@link interruptIfIdle()}.
+     */
+    void retire() {
+        retired = true;
+    }
+
+    /**
+     * Interrupts the thread unless it is running a task.
+     *
+     * @return {@code true} if the thread is interrupted.
+     */
+    boolean interruptIfIdle() {
+        if (!runLock.tryLock()) {
+            return false;
+        }
+        try {
+            this.interrupt();
+            return true;
+        } finally {
+            runLock.unlock();
+        }
+    }
+
+    /**
+     * 
+     * @see executor
+     */
+    ExecutorManager getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Adds the task to the tail of {@link localTasks}.
+     */
+    void pushLocalTask(Runnable task) {
+        localTasks.addLast(task);
+    }
+
+    /**
+     * Adds the forked task to the head of {@link localTasks}.
+     */
+    void pushForkedTask(Runnable task) {
+        localTasks.addFirst(task);
+    }
+
+    /**
+     * Takes the task from the head of {@link localTasks} if it is a forked
+     * task, used by the owner.
+     *
+     * @return the task or {@code null} if there is no forked task on the
+     * head.
+     */
+    Runnable pollForkedTask() {
+        Runnable task = localTasks.peekFirst();
+        if (task != null && QueuedTask.unwrap(task) instanceof ForkTask.Forked
+                && localTasks.removeFirstOccurrence(task)) {
+            return task;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the given task from {@link localTasks}.
+     *
+     * @return {@code true} if the task is removed.
+     */
+    boolean removeLocalTask(Runnable task) {
+        return localTasks.removeFirstOccurrence(task);
+    }
+
+    /**
+     * Takes a task from the head of {@link localTasks}, used by the owner.
+     *
+     * @return the task or {@code null} if there is no local task.
+     */
+    Runnable pollLocalTask() {
+        return localTasks.pollFirst();
+    }
+
+    /**
+     * Takes a task from the tail of {@link localTasks}, used by other threads.
+     *
+     * @return the task or {@code null} if there is no local task.
+     */
+    Runnable stealLocalTask() {
+        return localTasks.pollLast();
+    }
+
+    /**
+     * 
+     * @return size of {@link localTasks}
+     */
+    int getLocalQueueSize() {
+        return localTasks.size();
+    }
+
+    /**
+     * Moves at most {@code max} tasks from the given queue to the tail of
+     * {@link localTasks}.
+     *
+     * @return count of moved tasks.
+     */
+    int drainTasks(BlockingQueue<Runnable> from, int max) {
+        return from.drainTo(localTasks, max);
+    }
+
+    /**
+     * Must be called by this thread.
+     *
+     * @return {@link averageTaskNanos}
+     */
+    long getAverageTaskNanos() {
+        return averageTaskNanos;
+    }
+
+    /**
+     *
+     * @return {@link recorder}
+     */
+    TaskRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Removes all of the tasks of {@link localTasks} and adds them to the
+     * given collection.
+     *
+     * @return count of removed tasks.
+     */
+    int drainLocalTasks(Collection<Runnable> to) {
+        int count = 0;
+        Runnable task;
+        while ((task = localTasks.pollFirst()) != null) {
+            to.add(task);
+            count++;
+        }
+        return count;
+    }
+
     /**
      * Tries to kill the thread by calling {@link shutdown}
      * and {@link interrupt()}.
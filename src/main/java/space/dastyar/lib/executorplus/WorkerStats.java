@@ -0,0 +1,67 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A snapshot of the activity of a worker thread of an {@link ExecutorPlus}.
+ *
+ * @see ExecutorStats
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public final class WorkerStats {
+
+    private final String name;
+
+    private final long completedCount;
+
+    private final long busyNanos;
+
+    private final long idleNanos;
+
+    WorkerStats(String name, long completedCount, long busyNanos, long idleNanos) {
+        this.name = name;
+        this.completedCount = completedCount;
+        this.busyNanos = busyNanos;
+        this.idleNanos = idleNanos;
+    }
+
+    /**
+     * @return name of the thread.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return count of tasks that the worker has run, including the failed
+     * ones.
+     */
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * @param unit the time unit of the result.
+     * @return total time that the worker has spent running tasks.
+     */
+    public long getBusyTime(TimeUnit unit) {
+        return unit.convert(busyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param unit the time unit of the result.
+     * @return total time that the worker has been alive without running a
+     * task, waiting for a task or paused.
+     */
+    public long getIdleTime(TimeUnit unit) {
+        return unit.convert(idleNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return name + ": completed=" + completedCount + ", busy=" + getBusyTime(TimeUnit.MILLISECONDS)
+                + "ms, idle=" + getIdleTime(TimeUnit.MILLISECONDS) + "ms";
+    }
+
+}
@@ -0,0 +1,254 @@
+package space.dastyar.lib.executorplus;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits the Java Flight Recorder events of the life-cycle of tasks and
+ * workers.
+ * <br>
+ * Note: this is the Java 11 version, each method checks whether its event
+ * is enabled before creating it, so a disabled event costs a field read.
+ * Events are recorded without a stack trace, except the failure of a task.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+final class TaskEvents {
+
+    private static final String CATEGORY = "ExecutorPlus";
+
+    @Name("space.dastyar.executorplus.TaskQueued")
+    @Label("Task Queued")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class TaskQueued extends Event {
+
+        @Label("Pool")
+        String pool;
+
+    }
+
+    @Name("space.dastyar.executorplus.TaskDequeued")
+    @Label("Task Dequeued")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class TaskDequeued extends Event {
+
+        @Label("Pool")
+        String pool;
+
+        @Label("Worker")
+        Thread worker;
+
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        long queueWait;
+
+    }
+
+    @Name("space.dastyar.executorplus.TaskStarted")
+    @Label("Task Started")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class TaskStarted extends Event {
+
+        @Label("Pool")
+        String pool;
+
+        @Label("Worker")
+        Thread worker;
+
+    }
+
+    @Name("space.dastyar.executorplus.TaskFinished")
+    @Label("Task Finished")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class TaskFinished extends Event {
+
+        @Label("Pool")
+        String pool;
+
+        @Label("Worker")
+        Thread worker;
+
+        @Label("Run Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long runDuration;
+
+    }
+
+    @Name("space.dastyar.executorplus.TaskFailed")
+    @Label("Task Failed")
+    @Category(CATEGORY)
+    static final class TaskFailed extends Event {
+
+        @Label("Pool")
+        String pool;
+
+        @Label("Worker")
+        Thread worker;
+
+        @Label("Run Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long runDuration;
+
+        @Label("Exception")
+        Class<?> exception;
+
+        @Label("Message")
+        String message;
+
+    }
+
+    @Name("space.dastyar.executorplus.PoolPaused")
+    @Label("Pool Paused")
+    @Category(CATEGORY)
+    static final class PoolPaused extends Event {
+
+        @Label("Pool")
+        String pool;
+
+    }
+
+    @Name("space.dastyar.executorplus.PoolResumed")
+    @Label("Pool Resumed")
+    @Category(CATEGORY)
+    static final class PoolResumed extends Event {
+
+        @Label("Pool")
+        String pool;
+
+    }
+
+    @Name("space.dastyar.executorplus.WorkerStarted")
+    @Label("Worker Started")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class WorkerStarted extends Event {
+
+        @Label("Pool")
+        String pool;
+
+        @Label("Worker")
+        Thread worker;
+
+    }
+
+    @Name("space.dastyar.executorplus.WorkerExited")
+    @Label("Worker Exited")
+    @Category(CATEGORY)
+    @Description("A worker has exited due to shutdown, keep alive timeout or a failed task.")
+    @StackTrace(false)
+    static final class WorkerExited extends Event {
+
+        @Label("Pool")
+        String pool;
+
+        @Label("Worker")
+        Thread worker;
+
+    }
+
+    private static final EventType TASK_QUEUED = EventType.getEventType(TaskQueued.class);
+    private static final EventType TASK_DEQUEUED = EventType.getEventType(TaskDequeued.class);
+    private static final EventType TASK_STARTED = EventType.getEventType(TaskStarted.class);
+    private static final EventType TASK_FINISHED = EventType.getEventType(TaskFinished.class);
+    private static final EventType TASK_FAILED = EventType.getEventType(TaskFailed.class);
+    private static final EventType POOL_PAUSED = EventType.getEventType(PoolPaused.class);
+    private static final EventType POOL_RESUMED = EventType.getEventType(PoolResumed.class);
+    private static final EventType WORKER_STARTED = EventType.getEventType(WorkerStarted.class);
+    private static final EventType WORKER_EXITED = EventType.getEventType(WorkerExited.class);
+
+    private TaskEvents() {
+    }
+
+    static void taskQueued(String pool) {
+        if (TASK_QUEUED.isEnabled()) {
+            TaskQueued event = new TaskQueued();
+            event.pool = pool;
+            event.commit();
+        }
+    }
+
+    static void taskDequeued(String pool, Thread worker, long queuedNanos) {
+        if (TASK_DEQUEUED.isEnabled()) {
+            TaskDequeued event = new TaskDequeued();
+            event.pool = pool;
+            event.worker = worker;
+            event.queueWait = System.nanoTime() - queuedNanos;
+            event.commit();
+        }
+    }
+
+    static void taskStarted(String pool, Thread worker) {
+        if (TASK_STARTED.isEnabled()) {
+            TaskStarted event = new TaskStarted();
+            event.pool = pool;
+            event.worker = worker;
+            event.commit();
+        }
+    }
+
+    static void taskFinished(String pool, Thread worker, long durationNanos, Throwable failure) {
+        if (failure == null) {
+            if (TASK_FINISHED.isEnabled()) {
+                TaskFinished event = new TaskFinished();
+                event.pool = pool;
+                event.worker = worker;
+                event.runDuration = durationNanos;
+                event.commit();
+            }
+        } else if (TASK_FAILED.isEnabled()) {
+            TaskFailed event = new TaskFailed();
+            event.pool = pool;
+            event.worker = worker;
+            event.runDuration = durationNanos;
+            event.exception = failure.getClass();
+            event.message = failure.getMessage();
+            event.commit();
+        }
+    }
+
+    static void paused(String pool) {
+        if (POOL_PAUSED.isEnabled()) {
+            PoolPaused event = new PoolPaused();
+            event.pool = pool;
+            event.commit();
+        }
+    }
+
+    static void resumed(String pool) {
+        if (POOL_RESUMED.isEnabled()) {
+            PoolResumed event = new PoolResumed();
+            event.pool = pool;
+            event.commit();
+        }
+    }
+
+    static void workerStarted(String pool, Thread worker) {
+        if (WORKER_STARTED.isEnabled()) {
+            WorkerStarted event = new WorkerStarted();
+            event.pool = pool;
+            event.worker = worker;
+            event.commit();
+        }
+    }
+
+    static void workerExited(String pool, Thread worker) {
+        if (WORKER_EXITED.isEnabled()) {
+            WorkerExited event = new WorkerExited();
+            event.pool = pool;
+            event.worker = worker;
+            event.commit();
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Provides the {@link ThreadFactory} of virtual threads.
+ * <br>
+ * Note: this is the Java 21 version of the class within the multi-release jar.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+final class VirtualThreads {
+
+    private static final ThreadFactory FACTORY
+            = Thread.ofVirtual().name("executorplus-virtual-", 0).factory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return {@code true}, virtual threads are always supported on Java 21.
+     */
+    static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * @return a factory which creates a new virtual thread for each call.
+     */
+    static ThreadFactory factory() {
+        return FACTORY;
+    }
+
+}
@@ -1,5 +1,7 @@
 package space.dastyar.lib.executorplus;
 
+import java.util.concurrent.CountDownLatch;
+
 /**
  *
  * @since 0.1
@@ -14,4 +16,12 @@ public interface AbstractTest {
             Thread.currentThread().interrupt();
         }
     }
+
+    public default void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex1) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
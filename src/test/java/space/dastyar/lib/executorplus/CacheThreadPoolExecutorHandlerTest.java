@@ -1,13 +1,14 @@
 package space.dastyar.lib.executorplus;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import static org.junit.Assert.*;
-import org.mockito.Mockito;
-import static org.mockito.Mockito.*;
 
 /**
  *
@@ -46,6 +47,8 @@ public class CacheThreadPoolExecutorHandlerTest extends ExecuteHandlerTest {
         for (int i = 0; i < 5; i++) {
             booleans.set(i, Boolean.FALSE);
         }
+        // giving the released threads some time to become idle.
+        waitFor(100);
         for (int i = 0; i < 3; i++) {
             int j = i;
             ex.execute(() -> {
@@ -70,12 +73,126 @@ public class CacheThreadPoolExecutorHandlerTest extends ExecuteHandlerTest {
     }
     
     @Test
-    public void startTest(){
-        CacheThreadPoolExecutorHandler ctp=spy(CacheThreadPoolExecutorHandler.class);
-        when(ctp.getQueueSize()).thenReturn(1);
-        ctp.start();
-        verify(ctp).createAndStartWorker();
-        verify(ctp).setThreadCount(1);
-    
+    public void testIdleThreadIsReused() {
+        for (int i = 0; i < 5; i++) {
+            ex.execute(() -> {
+            });
+            ex.waitToFinish();
+        }
+        assertEquals(1, ex.getThreadCount());
+    }
+
+    @Test
+    public void testFailedTaskDoesNotLeaveIdleThread() throws Exception {
+        ex.execute(() -> {
+            throw new IllegalStateException();
+        });
+        ex.waitToFinish();
+        CountDownLatch done = new CountDownLatch(1);
+        ex.execute(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSubmitDoesNotBlock() throws Exception {
+        CountDownLatch done = new CountDownLatch(1000);
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            ex.execute(done::countDown);
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testMaxThreads() {
+        ex = ExecutorPlusFactory.newCachedThreadPool(2, 60, TimeUnit.SECONDS);
+        inital();
+        waitFor(100);
+        assertEquals(2, ex.getThreadCount());
+        assertEquals(8, ex.getQueueSize());
+        for (int i = 0; i < booleans.size(); i++) {
+            booleans.set(i, false);
+        }
+        ex.waitToFinish();
+        assertEquals(0, ex.getQueueSize());
+    }
+
+    @Test
+    public void testKeepAlive() {
+        ex = ExecutorPlusFactory.newCachedThreadPool(10, 200, TimeUnit.MILLISECONDS);
+        inital();
+        waitFor(100);
+        assertEquals(10, ex.getThreadCount());
+        for (int i = 0; i < booleans.size(); i++) {
+            booleans.set(i, false);
+        }
+        ex.waitToFinish();
+        waitFor(600);
+        assertEquals(0, ex.getThreadCount());
+        // a new thread is created after all of the threads are retired.
+        initalClear();
+        waitFor(100);
+        assertEquals(10, ex.getThreadCount());
+    }
+
+    @Test
+    public void testStatsOfRetiredThreads() throws InterruptedException {
+        ex = ExecutorPlusFactory.newCachedThreadPool(4, 1, TimeUnit.MILLISECONDS);
+        AtomicInteger decreases = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            long last = 0;
+            while (done.get() == 0) {
+                // a thread which retires meanwhile is counted exactly once.
+                long completed = ex.getStats().getCompletedCount();
+                if (completed < last) {
+                    decreases.incrementAndGet();
+                }
+                last = completed;
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 200; i++) {
+            for (int j = 0; j < 4; j++) {
+                ex.execute(() -> waitFor(1));
+            }
+            ex.waitToFinish();
+            waitFor(2);
+        }
+        done.set(1);
+        reader.join();
+        assertEquals(0, decreases.get());
+        assertEquals(800, ex.getStats().getCompletedCount());
+    }
+
+    @Test
+    public void testBatchHasNoEffect() {
+        ex.setMaxBatchSize(16);
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            ex.execute(counter::incrementAndGet);
+        }
+        ex.waitToFinish();
+        assertEquals(100, counter.get());
+    }
+
+    @Test
+    public void testSpinWait() {
+        ex.setSpinWait(1000, 100, 1);
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            ex.execute(counter::incrementAndGet);
+            ex.waitToFinish();
+        }
+        assertEquals(100, counter.get());
+        // the only thread is reused, it spins or waits for the next task.
+        assertEquals(1, ex.getThreadCount());
     }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testResizeIsNotSupported() {
+        ex.setPoolSize(4);
+    }
+
 }
@@ -1,13 +1,18 @@
 package space.dastyar.lib.executorplus;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -162,6 +167,339 @@ public abstract class ExecuteHandlerTest extends ExecutorManagerTest {
         }
     }
 
+    @Test
+    public void testExecuteAll() {
+        AtomicInteger counter = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tasks.add(counter::incrementAndGet);
+        }
+        ex.executeAll(tasks);
+        ex.waitToFinish();
+        assertEquals(100, counter.get());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testExecuteAllWithNullTask() {
+        ex.executeAll(Arrays.asList(() -> {
+        }, null));
+    }
+
+    @Test
+    public void testSubmitAll() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            int j = i;
+            collections.add(() -> j);
+        }
+        List<Future<Integer>> futures1 = ex.submitAll(collections);
+        assertEquals(100, futures1.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) futures1.get(i).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testSubmitAsync() throws Exception {
+        CompletableFuture<Integer> future = ex.submitAsync(() -> 20)
+                .thenApply(i -> i + 1)
+                .thenCombine(ex.submitAsync(() -> 2), (i, j) -> i * j);
+        assertEquals(42, (int) future.get(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> empty = ex.submitAsync(() -> {
+        });
+        assertNull(empty.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSubmitAsyncWithException() throws Exception {
+        CompletableFuture<Integer> future = ex.submitAsync(() -> {
+            throw new IllegalStateException("faild");
+        });
+        CompletableFuture<String> recovered = future.handle((v, e) -> e.getClass().getSimpleName());
+        assertEquals("IllegalStateException", recovered.get(5, TimeUnit.SECONDS));
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        ex.waitToFinish();
+        assertFalse(ex.isBusy());
+    }
+
+    /**
+     * Sums a range of numbers by splitting it in halves.
+     */
+    static class Sum extends ForkTask<Long> {
+
+        final long from;
+        final long to;
+
+        Sum(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= 100) {
+                long sum = 0;
+                for (long i = from; i < to; i++) {
+                    sum += i;
+                }
+                return sum;
+            }
+            long mid = (from + to) / 2;
+            Sum left = new Sum(from, mid);
+            left.fork();
+            return new Sum(mid, to).compute() + left.join();
+        }
+    }
+
+    @Test
+    public void testInvokeForkTask() {
+        assertEquals(499999500000L, (long) ex.invoke(new Sum(0, 1000000)));
+        ex.waitToFinish();
+        assertFalse(ex.isBusy());
+    }
+
+    @Test
+    public void testForkTasksFromManyRoots() throws Exception {
+        List<ListenableFuture<Long>> roots = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Sum root = new Sum(0, 100000);
+            roots.add(ex.submit(() -> ex.invoke(root)));
+        }
+        for (ListenableFuture<Long> root : roots) {
+            assertEquals(4999950000L, (long) root.get(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testForkTaskWithException() {
+        ForkTask<Long> task = new ForkTask<Long>() {
+            @Override
+            protected Long compute() {
+                Sum left = new Sum(0, 1000);
+                left.fork();
+                ForkTask<Long> right = new ForkTask<Long>() {
+                    @Override
+                    protected Long compute() {
+                        throw new IllegalStateException("faild");
+                    }
+                };
+                right.fork();
+                return left.join() + right.join();
+            }
+        };
+        try {
+            ex.invoke(task);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("faild", e.getMessage());
+        }
+        assertTrue(task.isDone());
+        ex.waitToFinish();
+    }
+
+    @Test
+    public void testForkOutsideExecutor() {
+        Sum task = new Sum(0, 1000);
+        assertSame(task, task.fork());
+        assertEquals(499500L, (long) task.join());
+        assertEquals(499500L, (long) new Sum(0, 1000).invoke());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testForkTwice() {
+        ex.invoke(new ForkTask<Void>() {
+            @Override
+            protected Void compute() {
+                Sum task = new Sum(0, 1000);
+                task.fork();
+                task.fork();
+                return null;
+            }
+        });
+    }
+
+    @Test
+    public void testAddListener() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch listened = new CountDownLatch(2);
+        ListenableFuture<Integer> future = ex.submit(() -> {
+            await(release);
+            return 1;
+        });
+        future.addListener(listened::countDown, Runnable::run);
+        assertEquals(2, listened.getCount());
+        release.countDown();
+        assertEquals(1, (int) future.get(5, TimeUnit.SECONDS));
+        // a listener which is added after completion runs immediately.
+        future.addListener(listened::countDown, Runnable::run);
+        assertTrue(listened.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAddListenerOnCancel() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        ListenableFuture<?> future = ex.submit(() -> await(release));
+        future.addListener(counter::incrementAndGet, Runnable::run);
+        future.addListener(() -> {
+            throw new IllegalStateException();
+        }, Runnable::run);
+        future.addListener(counter::incrementAndGet, Runnable::run);
+        future.cancel(true);
+        release.countDown();
+        assertEquals(2, counter.get());
+    }
+
+    @Test
+    public void testGetStats() {
+        ex.execute(() -> waitFor(20));
+        ex.submit(() -> {
+            throw new IllegalStateException("faild");
+        });
+        ex.waitToFinish();
+        ExecutorStats stats = ex.getStats();
+        assertEquals(2, stats.getSubmittedCount());
+        assertEquals(2, stats.getCompletedCount());
+        assertEquals(1, stats.getFailedCount());
+        assertEquals(2, stats.getQueueWait().getCount());
+        assertEquals(2, stats.getExecutionTime().getCount());
+        assertTrue(stats.getExecutionTime().getMax(TimeUnit.MILLISECONDS) >= 20);
+        assertTrue(stats.getExecutionTime().getP50(TimeUnit.NANOSECONDS)
+                <= stats.getExecutionTime().getP999(TimeUnit.NANOSECONDS));
+        if (!stats.getWorkers().isEmpty()) {
+            assertEquals(2, stats.getWorkers().stream().mapToLong(WorkerStats::getCompletedCount).sum());
+            assertTrue(stats.getWorkers().stream()
+                    .mapToLong(worker -> worker.getBusyTime(TimeUnit.MILLISECONDS)).sum() >= 20);
+        }
+    }
+
+    @Test
+    public void testQueueWaitNotRecorded() {
+        ex.setQueueWaitRecorded(false);
+        ex.execute(() -> waitFor(20));
+        ex.submit(() -> 1);
+        ex.waitToFinish();
+        ExecutorStats stats = ex.getStats();
+        assertEquals(2, stats.getCompletedCount());
+        // the priority thread pool always wraps its tasks.
+        assertEquals(ex instanceof PriorityExecutorPlus ? 2 : 0, stats.getQueueWait().getCount());
+        assertEquals(2, stats.getExecutionTime().getCount());
+    }
+
+    @Test
+    public void testName() throws Exception {
+        assertTrue(ex.getName().startsWith("executorplus-"));
+        ex.setName("test-pool");
+        assertEquals("test-pool", ex.getName());
+        try {
+            ex.setName(null);
+            fail();
+        } catch (NullPointerException e) {
+            assertEquals("test-pool", ex.getName());
+        }
+    }
+
+    @Test
+    public void testSchedule() throws Exception {
+        long start = System.nanoTime();
+        ScheduledFuture<Integer> future = ex.schedule(() -> 1, 200, TimeUnit.MILLISECONDS);
+        assertTrue(ex.isBusy());
+        assertEquals(1, (int) future.get(5, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        ex.waitToFinish();
+        assertFalse(ex.isBusy());
+    }
+
+    @Test
+    public void testScheduleCancel() {
+        AtomicInteger counter = new AtomicInteger();
+        ScheduledFuture<?> future = ex.schedule(counter::incrementAndGet, 200, TimeUnit.MILLISECONDS);
+        assertTrue(future.cancel(false));
+        assertFalse(ex.isBusy());
+        waitFor(300);
+        assertEquals(0, counter.get());
+    }
+
+    @Test
+    public void testScheduleAtFixedRate() throws Exception {
+        CountDownLatch runs = new CountDownLatch(3);
+        ScheduledFuture<?> future = ex.scheduleAtFixedRate(runs::countDown, 0, 50, TimeUnit.MILLISECONDS);
+        assertTrue(runs.await(5, TimeUnit.SECONDS));
+        assertTrue(ex.isBusy());
+        future.cancel(false);
+        assertTrue(ex.waitToFinish(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testScheduleWithFixedDelay() throws Exception {
+        CountDownLatch runs = new CountDownLatch(3);
+        ScheduledFuture<?> future = ex.scheduleWithFixedDelay(runs::countDown, 0, 50, TimeUnit.MILLISECONDS);
+        assertTrue(runs.await(5, TimeUnit.SECONDS));
+        future.cancel(false);
+        assertTrue(ex.waitToFinish(5, TimeUnit.SECONDS));
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void testShutdownCancelsScheduled() {
+        ScheduledFuture<?> future = ex.schedule(() -> {
+        }, 10, TimeUnit.SECONDS);
+        ex.shutdown();
+        assertTrue(future.isCancelled());
+        assertFalse(ex.isBusy());
+    }
+
+    @Test
+    public void testAwaitPaused() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicInteger finished = new AtomicInteger();
+        ex.execute(() -> {
+            started.countDown();
+            waitFor(200);
+            finished.incrementAndGet();
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        ex.pause();
+        assertEquals(0, finished.get());
+        ex.awaitPaused();
+        assertEquals(1, finished.get());
+        assertTrue(ex.awaitPaused(1, TimeUnit.SECONDS));
+        // a new task waits until resume.
+        ex.execute(finished::incrementAndGet);
+        waitFor(100);
+        assertEquals(1, finished.get());
+        ex.resume();
+        ex.waitToFinish();
+        assertEquals(2, finished.get());
+        ex.shutdownNow();
+    }
+
+    @Test
+    public void testAwaitPausedTimeout() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        ex.execute(() -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        ex.pause();
+        assertFalse(ex.awaitPaused(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(ex.awaitPaused(1, TimeUnit.SECONDS));
+        ex.resume();
+        ex.shutdownNow();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAwaitPausedWhileRunning() throws InterruptedException {
+        ex.awaitPaused();
+    }
+
     @Test
     public void invokAnyTest() {
         beginTheTest(this::invokAnyInitialNormal, this::assertInvokAnyNormal);
@@ -182,7 +520,12 @@ public abstract class ExecuteHandlerTest extends ExecutorManagerTest {
     public void assertInvokAnyNormal() {
         try {
             int a = ex.invokAny(collections);
-            assertEquals(0, a);
+            // the tasks are queued together, so any of them might finish first.
+            List<Integer> expected = new ArrayList<>();
+            for (Callable<Integer> task : collections) {
+                expected.add(task.call());
+            }
+            assertTrue(expected.contains(a));
         } catch (Exception e) {
             fail("InvokAny thorwed an exception!\n"+e.getMessage());
         }
@@ -211,6 +554,33 @@ public abstract class ExecuteHandlerTest extends ExecutorManagerTest {
         }
     }
 
+    @Test
+    public void invokAnyTestCancelsOthers() {
+        beginTheTest(this::invokAnyInitialCancel, this::assertInvokAnyCancel);
+    }
+
+    public void invokAnyInitialCancel() {
+        collections.add(() -> 1);
+        for (int i = 0; i < 2; i++) {
+            collections.add(() -> {
+                waitFor(1000000);
+                return 0;
+            });
+        }
+    }
+
+    public void assertInvokAnyCancel() {
+        try {
+            assertEquals(1, (int) ex.invokAny(collections));
+            // the other tasks are cancelled and interrupted.
+            assertTrue(ex.waitToFinish(5, TimeUnit.SECONDS));
+            // workers are still usable after the cancellation.
+            assertEquals(2, (int) ex.submit(() -> 2).get(5, TimeUnit.SECONDS));
+        } catch (Exception e) {
+            fail("InvokAny thorwed an exception!\n" + e);
+        }
+    }
+
     @Test
     public void invokAnyTestWithTimeoutException() {
         beginTheTest(this::invokAnyInitialTimeoutException,
@@ -228,7 +598,7 @@ public abstract class ExecuteHandlerTest extends ExecutorManagerTest {
 
     public void assertInvokAnyTimeoutException() {
         try {
-            ex.invokAny(collections, 10L, TimeUnit.SECONDS);
+            ex.invokAny(collections, 1L, TimeUnit.SECONDS);
             fail("No timeout exception has been thrown!");
         } catch (ExecutionException e) {
             fail("execution exception has been thrown!");
@@ -286,10 +656,12 @@ public abstract class ExecuteHandlerTest extends ExecutorManagerTest {
     }
 
     public void assertInvokAllTimeout() {
-        List<Future<Integer>> futures1 = ex.invokAll(collections, 10L, TimeUnit.SECONDS);
+        long start = System.nanoTime();
+        List<Future<Integer>> futures1 = ex.invokAll(collections, 1L, TimeUnit.SECONDS);
+        assertTrue(System.nanoTime() - start >= TimeUnit.SECONDS.toNanos(1));
         for (Future future : futures1) {
-            if (future.isDone()) {
-                fail("Should not be done before 10 seconds");
+            if (!future.isCancelled()) {
+                fail("Should be cancelled after the timeout");
             }
         }
     }
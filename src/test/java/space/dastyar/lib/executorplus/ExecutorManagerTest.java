@@ -2,7 +2,9 @@ package space.dastyar.lib.executorplus;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -66,6 +68,45 @@ public abstract class ExecutorManagerTest implements AbstractTest{
         assertFalse(ex.isBusy());
     }
 
+    @Test
+    public void testWaitToFinishWithTimeout() throws Exception {
+        beginTheTest(this::inital, this::assertWaitToFinishWithTimeoutTest);
+    }
+
+    public void assertWaitToFinishWithTimeoutTest() {
+        try {
+            assertFalse(ex.waitToFinish(100, TimeUnit.MILLISECONDS));
+            for (int i = 0; i < booleans.size(); i++) {
+                booleans.set(i, false);
+            }
+            assertTrue(ex.waitToFinish(5, TimeUnit.SECONDS));
+            assertFalse(ex.isBusy());
+        } catch (InterruptedException e) {
+            fail("waitToFinish interrupted!");
+        }
+    }
+
+    @Test
+    public void testOnIdle() throws Exception {
+        beginTheTest(this::inital, this::assertOnIdleTest);
+    }
+
+    public void assertOnIdleTest() {
+        CompletableFuture<Void> idle = ex.onIdle();
+        waitFor(100);
+        assertFalse(idle.isDone());
+        for (int i = 0; i < booleans.size(); i++) {
+            booleans.set(i, false);
+        }
+        try {
+            idle.get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            fail("onIdle has not completed!");
+        }
+        assertFalse(ex.isBusy());
+        assertTrue(ex.onIdle().isDone());
+    }
+
     public void inital() {
         for (int i = 0; i < 10; i++) {
             int j = i;
@@ -0,0 +1,147 @@
+package space.dastyar.lib.executorplus;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class ExecutorPlusJmxTest implements AbstractTest {
+
+    MBeanServer server;
+    ExecuteHandler ex;
+
+    @Before
+    public void setUp() {
+        server = ManagementFactory.getPlatformMBeanServer();
+        ex = (ExecuteHandler) ExecutorPlusFactory.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        ex.shutdownNow();
+    }
+
+    private ExecutorPlusMXBean proxy() {
+        return JMX.newMXBeanProxy(server, ex.getJmx().getObjectName(), ExecutorPlusMXBean.class);
+    }
+
+    @Test
+    public void testRegistered() throws Exception {
+        ObjectName name = ex.getJmx().getObjectName();
+        assertNotNull(name);
+        assertTrue(server.isRegistered(name));
+        assertEquals(ex.getName(), name.unquote(name.getKeyProperty("name")));
+    }
+
+    @Test
+    public void testAttributes() {
+        CountDownLatch release = new CountDownLatch(1);
+        ex.execute(() -> await(release));
+        ex.execute(() -> await(release));
+        ex.execute(() -> {
+        });
+        waitFor(100);
+        ExecutorPlusMXBean bean = proxy();
+        assertEquals(2, bean.getPoolSize());
+        assertEquals(1, bean.getQueueSize());
+        assertTrue(bean.isBusy());
+        assertEquals(3, bean.getSubmittedCount());
+        Map<String, String> states = bean.getWorkerStates();
+        assertEquals(2, states.size());
+        for (String state : states.values()) {
+            assertEquals("busy", state);
+        }
+        release.countDown();
+        ex.waitToFinish();
+        assertEquals(3, bean.getCompletedCount());
+        assertEquals(0, bean.getFailedCount());
+    }
+
+    @Test
+    public void testOperations() {
+        ExecutorPlusMXBean bean = proxy();
+        bean.pause();
+        assertTrue(bean.isPaused());
+        // each worker holds the task it has taken until it is resumed.
+        for (int i = 0; i < 3; i++) {
+            ex.execute(() -> {
+            });
+        }
+        waitFor(100);
+        assertEquals(1, bean.getQueueSize());
+        for (String state : bean.getWorkerStates().values()) {
+            assertTrue(state.contains("paused"));
+        }
+        bean.clear();
+        assertEquals(0, bean.getQueueSize());
+        bean.resume();
+        assertFalse(bean.isPaused());
+        ex.waitToFinish();
+        assertFalse(bean.isBusy());
+    }
+
+    @Test
+    public void testRename() {
+        ObjectName old = ex.getJmx().getObjectName();
+        ex.setName("renamed \"pool\"");
+        assertFalse(server.isRegistered(old));
+        assertTrue(server.isRegistered(ex.getJmx().getObjectName()));
+        assertEquals("renamed \"pool\"", proxy().getName());
+    }
+
+    @Test
+    public void testRegisteredAfterConstruction() {
+        PriorityExecutorPlus priority = ExecutorPlusFactory.newPriorityThreadPool(3);
+        try {
+            assertTrue(priority.isMBeanRegistered());
+            ObjectName name = ((ExecuteHandler) priority).getJmx().getObjectName();
+            assertEquals(3, JMX.newMXBeanProxy(server, name, ExecutorPlusMXBean.class).getPoolSize());
+        } finally {
+            priority.shutdownNow();
+        }
+        ExecutorPlus direct = new FixedThreadPoolExecutorHandler(1);
+        try {
+            assertFalse(direct.isMBeanRegistered());
+        } finally {
+            direct.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testDuplicateName() {
+        ExecutorPlus other = ExecutorPlusFactory.newFixedThreadPool(1);
+        try {
+            assertTrue(other.isMBeanRegistered());
+            other.setName(ex.getName());
+            assertFalse(other.isMBeanRegistered());
+            assertTrue(ex.isMBeanRegistered());
+            other.setName("other-pool");
+            assertTrue(other.isMBeanRegistered());
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testUnregisteredOnShutdown() {
+        ObjectName name = ex.getJmx().getObjectName();
+        ex.shutdown();
+        assertFalse(server.isRegistered(name));
+        assertNull(ex.getJmx().getObjectName());
+        ex.setName("after-shutdown");
+        assertNull(ex.getJmx().getObjectName());
+        assertFalse(ex.isMBeanRegistered());
+    }
+
+}
@@ -1,9 +1,15 @@
 package space.dastyar.lib.executorplus;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Test;
 import space.dastyar.lib.executorplus.ExecutorPlusFactory;
 import static org.junit.Assert.*;
 
@@ -50,4 +56,222 @@ public class FixedThreadPoolExecutorHandlerTest extends ExecuteHandlerTest {
         assertEquals(10, counterForPause.get());
     }
 
+    @Test
+    public void testBatch() {
+        ex.setMaxBatchSize(32);
+        AtomicInteger counter = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            tasks.add(counter::incrementAndGet);
+        }
+        ex.executeAll(tasks);
+        ex.waitToFinish();
+        assertEquals(10000, counter.get());
+    }
+
+    @Test
+    public void testPauseBetweenTasksOfBatch() {
+        ex = ExecutorPlusFactory.newFixedThreadPool(1);
+        ex.setMaxBatchSize(16);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            counter.incrementAndGet();
+            await(release);
+        });
+        for (int i = 0; i < 9; i++) {
+            tasks.add(counter::incrementAndGet);
+        }
+        // queued while paused, so the thread takes them as a batch.
+        ex.pause();
+        ex.executeAll(tasks);
+        ex.resume();
+        waitFor(100);
+        assertEquals(1, counter.get());
+        assertEquals(9, ex.getQueueSize());
+        ex.pause();
+        release.countDown();
+        waitFor(100);
+        assertEquals(1, counter.get());
+        ex.resume();
+        ex.waitToFinish();
+        assertEquals(10, counter.get());
+    }
+
+    @Test
+    public void testBatchOfExitedThread() throws InterruptedException {
+        ex = ExecutorPlusFactory.newFixedThreadPool(2);
+        ex.setMaxBatchSize(64);
+        AtomicInteger counter = new AtomicInteger();
+        List<Runnable> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            throw new IllegalStateException();
+        });
+        for (int i = 0; i < 100; i++) {
+            tasks.add(counter::incrementAndGet);
+        }
+        // queued while paused, so the thread of the first task takes a batch.
+        ex.pause();
+        ex.executeAll(tasks);
+        ex.resume();
+        // the thread which exits hands its batch to the other one.
+        assertTrue(ex.waitToFinish(5, TimeUnit.SECONDS));
+        assertEquals(100, counter.get());
+        assertFalse(ex.isBusy());
+        ex.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidBatchSize() {
+        ex.setMaxBatchSize(0);
+    }
+
+    @Test
+    public void testSpinWait() throws Exception {
+        ExecutorManager manager = (ExecutorManager) ex;
+        ex.setSpinWait(10_000_000, 1000, 2);
+        int maxSpinners = 0;
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, (int) ex.submit(() -> 0).get() + i);
+            maxSpinners = Math.max(maxSpinners, manager.getSpinnerCount());
+        }
+        // two of the four idle threads spin and the rest park.
+        assertEquals(2, maxSpinners);
+        for (int i = 0; i < 50 && manager.getSpinnerCount() > 0; i++) {
+            waitFor(100);
+        }
+        assertEquals(0, manager.getSpinnerCount());
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            ex.execute(counter::incrementAndGet);
+        }
+        ex.waitToFinish();
+        assertEquals(1000, counter.get());
+    }
+
+    @Test
+    public void testShrinkPoolSizeWhileSpinning() {
+        ex.setSpinWait(Integer.MAX_VALUE, 0, 4);
+        CountDownLatch started = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            // each thread takes one, so all of them spin afterwards.
+            ex.execute(() -> {
+                started.countDown();
+                await(started);
+            });
+        }
+        ex.waitToFinish();
+        waitFor(50);
+        assertEquals(4, ((ExecutorManager) ex).getSpinnerCount());
+        ex.setPoolSize(1);
+        waitFor(100);
+        assertEquals(1, ex.getThreadCount());
+        assertEquals(1, ((ExecutorManager) ex).getSpinnerCount());
+        ex.shutdown();
+        waitFor(50);
+        assertEquals(0, ((ExecutorManager) ex).getSpinnerCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidSpinWait() {
+        ex.setSpinWait(-1, 0, 1);
+    }
+
+    @Test
+    public void testGrowPoolSize() {
+        ex.setPoolSize(6);
+        assertEquals(6, ex.getThreadCount());
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        for (int i = 0; i < 6; i++) {
+            ex.execute(() -> {
+                running.incrementAndGet();
+                await(release);
+            });
+        }
+        waitFor(100);
+        assertEquals(6, running.get());
+        release.countDown();
+        ex.waitToFinish();
+    }
+
+    @Test
+    public void testShrinkPoolSizeRetiresIdleThreadsFirst() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        ex.execute(() -> await(release));
+        waitFor(100);
+        ex.setPoolSize(2);
+        waitFor(100);
+        assertEquals(2, ex.getThreadCount());
+        // the busy thread is not retired.
+        ex.execute(counter::incrementAndGet);
+        waitFor(100);
+        assertEquals(1, counter.get());
+        release.countDown();
+        ex.waitToFinish();
+        assertEquals(2, ex.getThreadCount());
+    }
+
+    @Test
+    public void testShrinkPoolSizeLetsBusyThreadsFinish() {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < 4; i++) {
+            ex.execute(() -> {
+                await(release);
+                counter.incrementAndGet();
+            });
+        }
+        for (int i = 0; i < 4; i++) {
+            ex.execute(counter::incrementAndGet);
+        }
+        waitFor(100);
+        ex.setPoolSize(1);
+        // retiring threads are counted until they exit.
+        assertEquals(4, ex.getThreadCount());
+        release.countDown();
+        ex.waitToFinish();
+        assertEquals(8, counter.get());
+        waitFor(100);
+        assertEquals(1, ex.getThreadCount());
+    }
+
+    @Test
+    public void testShrinkAndGrowPoolSize() {
+        ex.setPoolSize(1);
+        ex.setPoolSize(3);
+        waitFor(100);
+        assertEquals(3, ex.getThreadCount());
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            ex.execute(counter::incrementAndGet);
+        }
+        ex.waitToFinish();
+        assertEquals(100, counter.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPoolSize() {
+        ex.setPoolSize(0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSetPoolSizeAfterShutdown() {
+        ex.shutdown();
+        ex.setPoolSize(2);
+    }
+
+    @Test(timeout = 10000)
+    public void testForkTaskInBoundedPool() {
+        ExecutorPlus pool = ExecutorPlusFactory.newFixedThreadPool(2, 4, SaturationPolicy.BLOCK);
+        try {
+            // the workers fork more tasks than the queue can hold.
+            assertEquals(499999500000L, (long) pool.invoke(new Sum(0, 1000000)));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
 }
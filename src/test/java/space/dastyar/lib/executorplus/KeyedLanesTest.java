@@ -0,0 +1,326 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class KeyedLanesTest implements AbstractTest {
+
+    @Test
+    public void testTasksOfKeyRunInOrder() {
+        for (ExecutorPlus ex : new ExecutorPlus[]{
+            ExecutorPlusFactory.newFixedThreadPool(4),
+            ExecutorPlusFactory.newWorkStealingPool(4),
+            ExecutorPlusFactory.newCachedThreadPool()}) {
+            int keys = 8;
+            int perKey = 2000;
+            List<List<Integer>> runs = new ArrayList<>();
+            AtomicInteger[] running = new AtomicInteger[keys];
+            AtomicInteger overlaps = new AtomicInteger();
+            for (int k = 0; k < keys; k++) {
+                runs.add(Collections.synchronizedList(new ArrayList<>()));
+                running[k] = new AtomicInteger();
+            }
+            for (int i = 0; i < perKey; i++) {
+                for (int k = 0; k < keys; k++) {
+                    int key = k;
+                    int seq = i;
+                    ex.execute("key-" + key, () -> {
+                        if (running[key].incrementAndGet() > 1) {
+                            overlaps.incrementAndGet();
+                        }
+                        runs.get(key).add(seq);
+                        running[key].decrementAndGet();
+                    });
+                }
+            }
+            ex.waitToFinish();
+            assertEquals(0, overlaps.get());
+            for (int k = 0; k < keys; k++) {
+                List<Integer> run = runs.get(k);
+                assertEquals(perKey, run.size());
+                for (int i = 0; i < perKey; i++) {
+                    assertEquals(Integer.valueOf(i), run.get(i));
+                }
+            }
+            assertEquals(0, ((ExecuteHandler) ex).getLaneCount());
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testKeysRunInParallel() throws InterruptedException {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(2);
+        CountDownLatch both = new CountDownLatch(2);
+        try {
+            // each task waits for the other, so they must run at the same time.
+            ex.execute("a", () -> {
+                both.countDown();
+                await(both);
+            });
+            ex.execute("b", () -> {
+                both.countDown();
+                await(both);
+            });
+            assertTrue(ex.waitToFinish(5, TimeUnit.SECONDS));
+        } finally {
+            both.countDown();
+            both.countDown();
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLaneIsRemovedWhenIdle() {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(2);
+        ExecuteHandler handler = (ExecuteHandler) ex;
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            ex.execute("a", () -> await(release));
+            ex.execute("a", () -> {
+            });
+            ex.execute("b", () -> {
+            });
+            waitFor(50);
+            // only the lane which has a waiting task is left.
+            assertEquals(1, handler.getLaneCount());
+            assertEquals(2, inFlight(ex));
+            release.countDown();
+            ex.waitToFinish();
+            assertEquals(0, handler.getLaneCount());
+            assertEquals(0, inFlight(ex));
+        } finally {
+            release.countDown();
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSubmit() throws InterruptedException, ExecutionException {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            StringBuffer order = new StringBuffer();
+            for (int i = 0; i < 5; i++) {
+                int value = i;
+                futures.add(ex.submit("key", () -> {
+                    order.append(value);
+                    return value * value;
+                }));
+            }
+            for (int i = 0; i < 5; i++) {
+                assertEquals(Integer.valueOf(i * i), futures.get(i).get());
+            }
+            assertEquals("01234", order.toString());
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedTaskDoesNotStopLane() throws InterruptedException {
+        // the worker which the exception is thrown to exits.
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(2);
+        AtomicInteger counter = new AtomicInteger();
+        try {
+            Future<Object> failed = ex.submit("key", () -> {
+                throw new IllegalStateException();
+            });
+            ex.execute("key", () -> {
+                throw new IllegalStateException();
+            });
+            ex.execute("key", counter::incrementAndGet);
+            ex.waitToFinish();
+            assertEquals(1, counter.get());
+            try {
+                failed.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+            assertEquals(2, ex.getStats().getFailedCount());
+            assertEquals(0, ((ExecuteHandler) ex).getLaneCount());
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedTaskWhileQueueIsFull() throws InterruptedException {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(2, 1, SaturationPolicy.BLOCK);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch fail = new CountDownLatch(1);
+        AtomicInteger counter = new AtomicInteger();
+        try {
+            ex.execute(() -> await(release));
+            waitFor(50);
+            ex.execute("key", () -> {
+                await(fail);
+                throw new IllegalStateException();
+            });
+            waitFor(50);
+            ex.execute("key", counter::incrementAndGet);
+            ex.execute(counter::incrementAndGet);
+            // the queue is full when the task throws and its worker exits.
+            fail.countDown();
+            waitFor(50);
+            release.countDown();
+            assertTrue(ex.waitToFinish(3, TimeUnit.SECONDS));
+            assertEquals(2, counter.get());
+            assertEquals(0, ((ExecuteHandler) ex).getLaneCount());
+        } finally {
+            release.countDown();
+            fail.countDown();
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testClearRemovesLanes() {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            ex.execute(() -> await(release));
+            waitFor(50);
+            Future<Integer> queued = ex.submit("key", () -> 1);
+            Future<Integer> waiting = ex.submit("key", () -> 2);
+            assertEquals(3, inFlight(ex));
+            ex.clear();
+            assertEquals(1, inFlight(ex));
+            assertEquals(0, ((ExecuteHandler) ex).getLaneCount());
+            release.countDown();
+            ex.waitToFinish();
+            assertEquals(0, inFlight(ex));
+            assertFalse(queued.isDone());
+            assertFalse(waiting.isDone());
+            // a new task of the key creates a new lane.
+            Future<Integer> next = ex.submit("key", () -> 3);
+            assertEquals(Integer.valueOf(3), next.get());
+        } catch (InterruptedException | ExecutionException e) {
+            fail();
+        } finally {
+            release.countDown();
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testShutdownNowReturnsTasksOfLanes() {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            ex.execute(() -> await(release));
+            waitFor(50);
+            Runnable first = () -> {
+            };
+            Runnable second = () -> {
+            };
+            ex.execute("key", first);
+            ex.execute("key", second);
+            ex.execute("other", first);
+            List<Runnable> remaining = ex.shutdownNow();
+            assertEquals(3, remaining.size());
+            assertSame(first, remaining.get(0));
+            assertSame(second, remaining.get(1));
+            assertSame(first, remaining.get(2));
+            // the running task is interrupted.
+            assertTrue(ex.waitToFinish(5, TimeUnit.SECONDS));
+            assertEquals(0, inFlight(ex));
+        } catch (InterruptedException e) {
+            fail();
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void testDiscardedLaneCancelsItsTasks() {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(1, 1, SaturationPolicy.DISCARD_OLDEST);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            ex.execute(() -> await(release));
+            waitFor(50);
+            Future<Integer> first = ex.submit("key", () -> 1);
+            Future<Integer> second = ex.submit("key", () -> 2);
+            // the lane is the oldest task in the queue.
+            ex.execute(() -> {
+            });
+            assertTrue(first.isCancelled());
+            assertTrue(second.isCancelled());
+            release.countDown();
+            ex.waitToFinish();
+            assertEquals(0, inFlight(ex));
+            assertEquals(0, ((ExecuteHandler) ex).getLaneCount());
+            try {
+                second.get();
+                fail();
+            } catch (CancellationException e) {
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            fail();
+        } finally {
+            release.countDown();
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRejectedLaneIsRemoved() {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(1, 1, SaturationPolicy.ABORT);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            ex.execute(() -> await(release));
+            waitFor(50);
+            ex.execute(() -> {
+            });
+            try {
+                ex.execute("key", () -> {
+                });
+                fail();
+            } catch (RejectedExecutionException e) {
+            }
+            assertEquals(0, ((ExecuteHandler) ex).getLaneCount());
+            assertEquals(2, inFlight(ex));
+        } finally {
+            release.countDown();
+            ex.shutdownNow();
+        }
+    }
+
+    private static long inFlight(ExecutorPlus ex) {
+        return ((ExecuteHandler) ex).getInFlightCount();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullKey() {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(1);
+        try {
+            ex.execute(null, () -> {
+            });
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testKeyedExecuteAfterShutdown() {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(1);
+        ex.shutdown();
+        ex.submit("key", () -> 1);
+    }
+
+}
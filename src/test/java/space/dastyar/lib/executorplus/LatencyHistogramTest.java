@@ -0,0 +1,70 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class LatencyHistogramTest {
+
+    private LatencyHistogram histogramOf(long... durations) {
+        TaskRecorder.Durations recorded = new TaskRecorder.Durations();
+        for (long duration : durations) {
+            recorded.record(duration);
+        }
+        return recorded.snapshot();
+    }
+
+    @Test
+    public void testBuckets() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(bucket < LatencyHistogram.BUCKETS);
+            long upper = LatencyHistogram.upperBoundOf(bucket);
+            assertTrue(upper >= value);
+            // at most one eighth larger.
+            assertTrue(upper - value <= value / 8);
+        }
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+        assertEquals(0, LatencyHistogram.bucketOf(-1));
+    }
+
+    @Test
+    public void testPercentiles() {
+        long[] durations = new long[1000];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = TimeUnit.MICROSECONDS.toNanos(i + 1);
+        }
+        LatencyHistogram histogram = histogramOf(durations);
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000, histogram.getMax(TimeUnit.MICROSECONDS));
+        assertEquals(500, histogram.getMean(TimeUnit.MICROSECONDS));
+        assertWithin(500, histogram.getP50(TimeUnit.MICROSECONDS));
+        assertWithin(990, histogram.getP99(TimeUnit.MICROSECONDS));
+        assertWithin(999, histogram.getP999(TimeUnit.MICROSECONDS));
+        assertEquals(1000, histogram.getPercentile(100, TimeUnit.MICROSECONDS));
+    }
+
+    private void assertWithin(long expected, long actual) {
+        assertTrue(actual + " is not about " + expected, actual >= expected && actual <= expected + expected / 8);
+    }
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = histogramOf();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean(TimeUnit.NANOSECONDS));
+        assertEquals(0, histogram.getP99(TimeUnit.NANOSECONDS));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        histogramOf(1).getPercentile(0, TimeUnit.NANOSECONDS);
+    }
+
+}
@@ -0,0 +1,95 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class PoolSizeControllerTest implements AbstractTest {
+
+    ExecuteHandler ex;
+
+    @Before
+    public void setUp() {
+        ex = new FixedThreadPoolExecutorHandler(1);
+    }
+
+    @After
+    public void tearDown() {
+        ex.shutdownNow();
+    }
+
+    @Test
+    public void testGrowsWhileThroughputImproves() {
+        PoolSizeController controller = new PoolSizeController(ex, 1, 8, 10, TimeUnit.MILLISECONDS);
+        assertEquals(2, controller.decide(100, 10, 1));
+        assertEquals(3, controller.decide(200, 10, 2));
+        assertEquals(4, controller.decide(300, 10, 3));
+    }
+
+    @Test
+    public void testTurnsBackWhenThroughputDrops() {
+        PoolSizeController controller = new PoolSizeController(ex, 1, 8, 10, TimeUnit.MILLISECONDS);
+        assertEquals(3, controller.decide(100, 10, 2));
+        assertEquals(2, controller.decide(50, 10, 3));
+        assertEquals(1, controller.decide(100, 10, 2));
+    }
+
+    @Test
+    public void testStepsDownWhenThroughputDoesNotChange() {
+        PoolSizeController controller = new PoolSizeController(ex, 1, 8, 10, TimeUnit.MILLISECONDS);
+        assertEquals(5, controller.decide(100, 10, 4));
+        assertEquals(4, controller.decide(101, 10, 5));
+    }
+
+    @Test
+    public void testStaysWithinBounds() {
+        PoolSizeController controller = new PoolSizeController(ex, 2, 3, 10, TimeUnit.MILLISECONDS);
+        assertEquals(3, controller.decide(100, 10, 2));
+        assertEquals(3, controller.decide(200, 10, 3));
+        // turns back at the bound.
+        assertEquals(2, controller.decide(300, 10, 3));
+        assertEquals(2, controller.decide(300, 10, 2));
+        assertEquals(2, controller.decide(300, 10, 2));
+    }
+
+    @Test
+    public void testShrinksWhenNoTaskIsQueued() {
+        PoolSizeController controller = new PoolSizeController(ex, 1, 8, 10, TimeUnit.MILLISECONDS);
+        assertEquals(4, controller.decide(100, 0, 4));
+        assertEquals(4, controller.decide(100, 0, 4));
+        assertEquals(3, controller.decide(100, 0, 4));
+        assertEquals(3, controller.decide(100, 0, 3));
+    }
+
+    @Test
+    public void testConvergesOnBlockingTasks() {
+        PoolSizeController controller = new PoolSizeController(ex, 1, 8, 20, TimeUnit.MILLISECONDS);
+        controller.start();
+        for (int i = 0; i < 2000; i++) {
+            ex.execute(() -> waitFor(1));
+        }
+        waitFor(500);
+        // blocked tasks run faster on more threads.
+        assertTrue(ex.getThreadCount() > 2);
+        ex.waitToFinish();
+        waitFor(500);
+        assertEquals(1, ex.getThreadCount());
+    }
+
+    @Test
+    public void testStopsOnShutdown() throws InterruptedException {
+        PoolSizeController controller = new PoolSizeController(ex, 1, 8, 10, TimeUnit.MILLISECONDS);
+        controller.start();
+        ex.shutdown();
+        controller.join(1000);
+        assertFalse(controller.isAlive());
+    }
+
+}
@@ -0,0 +1,142 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class PriorityThreadPoolExecutorHandlerTest extends ExecuteHandlerTest {
+
+    public PriorityThreadPoolExecutorHandlerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        ex = ExecutorPlusFactory.newPriorityThreadPool(4);
+        queueSize = 6;
+    }
+
+    @After
+    public void tearDown() {
+        ex = null;
+    }
+
+    @Override
+    public void assertPauseAndResumeTest() {
+        waitFor(100);
+        ex.pause();
+        for (int i = 0; i < booleans.size(); i++) {
+            booleans.set(i, false);
+        }
+        assertEquals(4, counterForPause.get());
+        ex.resume();
+        waitFor(100);
+        assertEquals(10, counterForPause.get());
+    }
+
+    /**
+     * Blocks the single thread of the executor until the latch is released.
+     */
+    private void block(PriorityExecutorPlus executor, CountDownLatch release) {
+        executor.execute(() -> await(release));
+        // giving the thread some time to take the first task.
+        waitFor(100);
+    }
+
+    @Test
+    public void testPriorityOrder() {
+        PriorityExecutorPlus pex = ExecutorPlusFactory.newPriorityThreadPool(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        block(pex, release);
+        pex.execute(() -> order.add(0), PriorityExecutorPlus.MIN_PRIORITY);
+        pex.execute(() -> order.add(5));
+        pex.execute(() -> order.add(9), PriorityExecutorPlus.MAX_PRIORITY);
+        pex.execute(() -> order.add(10), PriorityExecutorPlus.MAX_PRIORITY);
+        release.countDown();
+        pex.waitToFinish();
+        assertEquals(Arrays.asList(9, 10, 5, 0), order);
+    }
+
+    @Test
+    public void testAging() {
+        PriorityExecutorPlus pex = ExecutorPlusFactory.newPriorityThreadPool(1, 10, TimeUnit.MILLISECONDS);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        block(pex, release);
+        pex.execute(() -> order.add(0), PriorityExecutorPlus.MIN_PRIORITY);
+        // more than nine levels of aging.
+        waitFor(200);
+        pex.execute(() -> order.add(9), PriorityExecutorPlus.MAX_PRIORITY);
+        release.countDown();
+        pex.waitToFinish();
+        assertEquals(Arrays.asList(0, 9), order);
+    }
+
+    @Test
+    public void testSubmitWithResult() throws Exception {
+        PriorityExecutorPlus pex = ExecutorPlusFactory.newPriorityThreadPool(1);
+        // an int result must not be taken as a priority.
+        assertEquals(Integer.valueOf(42), pex.submit(() -> {
+        }, 42).get());
+        assertEquals(1, pex.getStartedCount(PriorityExecutorPlus.NORM_PRIORITY));
+        pex.shutdownNow();
+    }
+
+    @Test
+    public void testQueueWait() throws Exception {
+        PriorityExecutorPlus pex = ExecutorPlusFactory.newPriorityThreadPool(1);
+        CountDownLatch release = new CountDownLatch(1);
+        block(pex, release);
+        pex.submitWithPriority(() -> 1, 2);
+        waitFor(100);
+        release.countDown();
+        pex.waitToFinish();
+        assertEquals(1, pex.getStartedCount(2));
+        assertEquals(1, pex.getStartedCount(PriorityExecutorPlus.NORM_PRIORITY));
+        assertEquals(0, pex.getStartedCount(PriorityExecutorPlus.MAX_PRIORITY));
+        assertTrue(pex.getMaxQueueWait(2, TimeUnit.MILLISECONDS) >= 100);
+        assertEquals(pex.getMaxQueueWait(2, TimeUnit.NANOSECONDS),
+                pex.getAverageQueueWait(2, TimeUnit.NANOSECONDS));
+        assertEquals(0, pex.getAverageQueueWait(PriorityExecutorPlus.MAX_PRIORITY, TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void testShutdownNowReturnsSubmittedTasks() {
+        PriorityExecutorPlus pex = ExecutorPlusFactory.newPriorityThreadPool(1);
+        CountDownLatch release = new CountDownLatch(1);
+        block(pex, release);
+        Runnable task = () -> {
+        };
+        pex.execute(task, 3);
+        assertEquals(Arrays.asList(task), pex.shutdownNow());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPriority() {
+        ExecutorPlusFactory.newPriorityThreadPool(1).execute(() -> {
+        }, PriorityExecutorPlus.MAX_PRIORITY + 1);
+    }
+
+}
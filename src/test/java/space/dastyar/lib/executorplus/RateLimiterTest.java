@@ -0,0 +1,216 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class RateLimiterTest implements AbstractTest {
+
+    @Test
+    public void testDisabledByDefault() {
+        RateLimiter limiter = new RateLimiter();
+        assertFalse(limiter.isLimited());
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+    }
+
+    @Test
+    public void testBurstAndRefill() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter();
+        limiter.setRate(20, 3);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(true);
+        }
+        assertFalse(limiter.tryAcquire());
+        long start = System.nanoTime();
+        limiter.awaitPermit();
+        long waited = System.nanoTime() - start;
+        // a permit every 50ms.
+        assertTrue(waited >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(limiter.tryAcquire());
+        assertEquals(1, limiter.getWaitCount());
+        assertTrue(limiter.getWaitNanos() > 0);
+    }
+
+    @Test
+    public void testUnusedPermitIsReleased() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter();
+        limiter.setRate(0.1, 2);
+        assertTrue(limiter.tryAcquire());
+        limiter.acquire();
+        // both permits are reserved, so the bucket can not refill them.
+        assertEquals(0, limiter.getAvailablePermits());
+        assertFalse(limiter.tryAcquire());
+        limiter.release(true);
+        limiter.release(false);
+        assertEquals(1, limiter.getAvailablePermits());
+        assertEquals(0, limiter.getWaitCount());
+    }
+
+    @Test
+    public void testDisableWakesUpWaiters() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter();
+        limiter.setRate(0.01, 1);
+        assertTrue(limiter.tryAcquire());
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.awaitPermit();
+            } catch (InterruptedException e) {
+            }
+        });
+        waiter.start();
+        waitFor(50);
+        assertTrue(waiter.isAlive());
+        limiter.setRate(0, 0);
+        waiter.join(1000);
+        assertFalse(waiter.isAlive());
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testThreadPoolRate() throws InterruptedException {
+        for (ExecutorPlus ex : new ExecutorPlus[]{
+            ExecutorPlusFactory.newFixedThreadPool(4),
+            ExecutorPlusFactory.newWorkStealingPool(4),
+            ExecutorPlusFactory.newPriorityThreadPool(4),
+            ExecutorPlusFactory.newCachedThreadPool(),
+            new VirtualThreadExecutorHandler(Thread::new, Integer.MAX_VALUE)}) {
+            ex.setRateLimit(100, 5);
+            AtomicInteger counter = new AtomicInteger();
+            long start = System.nanoTime();
+            for (int i = 0; i < 40; i++) {
+                ex.execute(counter::incrementAndGet);
+            }
+            ex.waitToFinish();
+            long elapsed = System.nanoTime() - start;
+            assertEquals(40, counter.get());
+            // 35 tasks after the burst at 100 tasks per second.
+            assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(300));
+            ExecutorStats stats = ex.getStats();
+            assertTrue(stats.getThrottledCount() > 0);
+            assertTrue(stats.getThrottledTime(TimeUnit.MILLISECONDS) > 0);
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testChangeRateAtRuntime() throws InterruptedException {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(2);
+        try {
+            // giving the threads some time to wait for tasks.
+            waitFor(50);
+            ex.setRateLimit(0.1, 1);
+            AtomicInteger counter = new AtomicInteger();
+            for (int i = 0; i < 5; i++) {
+                ex.execute(counter::incrementAndGet);
+            }
+            waitFor(100);
+            // each thread which was waiting before the limit takes a task,
+            // the rest stay in the queue until the bucket gets a permit.
+            assertEquals(2, counter.get());
+            assertEquals(3, ex.getQueueSize());
+            ex.setRateLimit(0, 0);
+            assertTrue(ex.waitToFinish(1, TimeUnit.SECONDS));
+            assertEquals(5, counter.get());
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThrottledTasksAreStillQueued() throws InterruptedException {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(2);
+        CountDownLatch started = new CountDownLatch(1);
+        try {
+            ex.setRateLimit(0.1, 1);
+            ex.execute(started::countDown);
+            started.await(1, TimeUnit.SECONDS);
+            for (int i = 0; i < 4; i++) {
+                ex.execute(() -> {
+                });
+            }
+            waitFor(50);
+            // both workers wait for a permit, holding no task out of the queues.
+            assertFalse(((ExecuteHandler) ex).getThreads().stream().anyMatch(Worker::isBusy));
+            ex.clear();
+            assertEquals(0, ((ExecuteHandler) ex).getInFlightCount());
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testShutdownNowWhileThrottled() {
+        ExecutorPlus ex = ExecutorPlusFactory.newWorkStealingPool(2);
+        // giving the threads some time to wait for tasks.
+        waitFor(50);
+        ex.setRateLimit(0.1, 1);
+        for (int i = 0; i < 4; i++) {
+            ex.execute(() -> {
+            });
+        }
+        waitFor(50);
+        // the threads were waiting for tasks before the limit, so each one
+        // takes a task and the bucket goes below zero.
+        List<Runnable> remaining = ex.shutdownNow();
+        assertEquals(2, remaining.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeRate() {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(1);
+        try {
+            ex.setRateLimit(-1, 1);
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroBurst() {
+        ExecutorPlus ex = ExecutorPlusFactory.newFixedThreadPool(1);
+        try {
+            ex.setRateLimit(10, 0);
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThreadsDoNotPileUp() {
+        for (ExecutorPlus ex : new ExecutorPlus[]{
+            ExecutorPlusFactory.newCachedThreadPool(),
+            new VirtualThreadExecutorHandler(Thread::new, Integer.MAX_VALUE)}) {
+            try {
+                ex.setRateLimit(0.1, 1);
+                AtomicInteger counter = new AtomicInteger();
+                for (int i = 0; i < 20; i++) {
+                    ex.execute(counter::incrementAndGet);
+                }
+                waitFor(100);
+                assertEquals(1, counter.get());
+                assertEquals(19, ex.getQueueSize());
+                // no thread is created while another one waits for a permit.
+                assertTrue(ex.getThreadCount() <= 2);
+                ex.setRateLimit(0, 0);
+                assertTrue(ex.waitToFinish(1, TimeUnit.SECONDS));
+                assertEquals(20, counter.get());
+            } catch (InterruptedException e) {
+                fail();
+            } finally {
+                ex.shutdownNow();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,263 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class RingBufferQueueTest implements AbstractTest {
+
+    /**
+     * A task which is known by its id.
+     */
+    static class Task implements Runnable {
+
+        final int id;
+
+        Task(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public void run() {
+        }
+
+    }
+
+    @Test
+    public void testCapacityIsPowerOfTwo() {
+        assertEquals(2, new RingBufferQueue(1, WaitStrategy.BUSY_SPIN).capacity());
+        assertEquals(8, new RingBufferQueue(5, WaitStrategy.BUSY_SPIN).capacity());
+        assertEquals(16, new RingBufferQueue(16, WaitStrategy.BUSY_SPIN).capacity());
+    }
+
+    @Test
+    public void testOfferAndPollInOrder() {
+        RingBufferQueue queue = new RingBufferQueue(4, WaitStrategy.BUSY_SPIN);
+        // more than one lap of the ring.
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(queue.offer(new Task(i)));
+            }
+            assertFalse(queue.offer(new Task(4)));
+            assertEquals(4, queue.size());
+            assertEquals(0, queue.remainingCapacity());
+            for (int i = 0; i < 4; i++) {
+                assertEquals(i, ((Task) queue.poll()).id);
+            }
+            assertNull(queue.poll());
+            assertTrue(queue.isEmpty());
+        }
+    }
+
+    @Test
+    public void testRemove() {
+        RingBufferQueue queue = new RingBufferQueue(4, WaitStrategy.BUSY_SPIN);
+        Task first = new Task(0);
+        Task second = new Task(1);
+        Task third = new Task(2);
+        queue.offer(first);
+        queue.offer(second);
+        queue.offer(third);
+        assertTrue(queue.remove(second));
+        assertFalse(queue.remove(second));
+        assertFalse(queue.contains(second));
+        assertTrue(queue.contains(third));
+        assertSame(first, queue.peek());
+        assertSame(first, queue.poll());
+        // the removed task is skipped.
+        assertSame(third, queue.poll());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testDrainTo() {
+        RingBufferQueue queue = new RingBufferQueue(8, WaitStrategy.BUSY_SPIN);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(new Task(i));
+        }
+        List<Runnable> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained, 2));
+        assertEquals(3, queue.drainTo(drained));
+        assertEquals(5, drained.size());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testTimedWait() throws InterruptedException {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            RingBufferQueue queue = new RingBufferQueue(1, strategy);
+            assertNull(queue.poll(20, TimeUnit.MILLISECONDS));
+            queue.offer(new Task(0));
+            queue.offer(new Task(1));
+            assertFalse(queue.offer(new Task(2), 20, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void testParkedConsumerIsWokenUp() throws InterruptedException {
+        RingBufferQueue queue = new RingBufferQueue(4, WaitStrategy.BACKOFF_PARK);
+        AtomicReference<Runnable> taken = new AtomicReference<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                taken.set(queue.take());
+            } catch (InterruptedException e) {
+            }
+        });
+        consumer.start();
+        // spins and yields before parking.
+        for (int i = 0; i < 50 && consumer.getState() != Thread.State.WAITING; i++) {
+            waitFor(20);
+        }
+        assertEquals(Thread.State.WAITING, consumer.getState());
+        Task task = new Task(0);
+        queue.offer(task);
+        consumer.join(1000);
+        assertSame(task, taken.get());
+    }
+
+    @Test
+    public void testTakeIsInterruptible() throws InterruptedException {
+        RingBufferQueue queue = new RingBufferQueue(4, WaitStrategy.BUSY_SPIN);
+        AtomicReference<Exception> thrown = new AtomicReference<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                queue.take();
+            } catch (InterruptedException e) {
+                thrown.set(e);
+            }
+        });
+        consumer.start();
+        waitFor(50);
+        consumer.interrupt();
+        consumer.join(1000);
+        assertTrue(thrown.get() instanceof InterruptedException);
+    }
+
+    @Test
+    public void testManyProducersAndConsumers() throws InterruptedException {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            RingBufferQueue queue = new RingBufferQueue(64, strategy);
+            int producers = 4;
+            int perProducer = 20_000;
+            AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+            AtomicInteger taken = new AtomicInteger();
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int from = p * perProducer;
+                threads.add(new Thread(() -> {
+                    try {
+                        for (int i = 0; i < perProducer; i++) {
+                            queue.put(new Task(from + i));
+                        }
+                    } catch (InterruptedException e) {
+                    }
+                }));
+            }
+            for (int c = 0; c < 2; c++) {
+                threads.add(new Thread(() -> {
+                    try {
+                        while (taken.get() < producers * perProducer) {
+                            Runnable task = queue.poll(10, TimeUnit.MILLISECONDS);
+                            if (task != null) {
+                                seen.incrementAndGet(((Task) task).id);
+                                taken.incrementAndGet();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join(10_000);
+            }
+            assertEquals(producers * perProducer, taken.get());
+            for (int i = 0; i < seen.length(); i++) {
+                assertEquals(1, seen.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testThreadPool() throws InterruptedException {
+        for (WaitStrategy strategy : WaitStrategy.values()) {
+            ExecutorPlus ex = ExecutorPlusFactory.newRingBufferThreadPool(2, 16, strategy);
+            AtomicInteger counter = new AtomicInteger();
+            for (int i = 0; i < 1000; i++) {
+                ex.execute(counter::incrementAndGet);
+            }
+            ex.waitToFinish();
+            assertEquals(1000, counter.get());
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testThreadPoolSaturation() {
+        ExecutorPlus ex = ExecutorPlusFactory.newRingBufferThreadPool(1, 1, SaturationPolicy.ABORT, WaitStrategy.BACKOFF_PARK);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            ex.execute(() -> await(release));
+            waitFor(50);
+            ex.execute(() -> {
+            });
+            ex.execute(() -> {
+            });
+            try {
+                ex.execute(() -> {
+                });
+                fail();
+            } catch (RejectedExecutionException e) {
+                assertEquals(1, ex.getSaturationCount(SaturationPolicy.ABORT));
+            }
+        } finally {
+            release.countDown();
+            ex.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testForkTaskInThreadPool() {
+        ExecutorPlus ex = ExecutorPlusFactory.newRingBufferThreadPool(1, 1024, WaitStrategy.BACKOFF_PARK);
+        try {
+            assertEquals(Long.valueOf(500_500), ex.invoke(new ExecuteHandlerTest.Sum(1, 1001)));
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testForkTaskInManyThreads() {
+        ExecutorPlus ex = ExecutorPlusFactory.newRingBufferThreadPool(4, 1024, WaitStrategy.BACKOFF_PARK);
+        try {
+            // more subtasks are forked and joined than the ring can hold.
+            assertEquals(Long.valueOf(499_999_500_000L), ex.invoke(new ExecuteHandlerTest.Sum(0, 1_000_000)));
+            assertEquals(0, ex.getQueueSize());
+        } finally {
+            ex.shutdownNow();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroCapacity() {
+        ExecutorPlusFactory.newRingBufferThreadPool(1, 0, WaitStrategy.YIELD);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullWaitStrategy() {
+        ExecutorPlusFactory.newRingBufferThreadPool(1, 8, null);
+    }
+
+}
@@ -0,0 +1,195 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Uses a single thread with a queue of two tasks, the thread is blocked
+ * by the first task so the fourth task saturates the executor.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class SaturationPolicyTest implements AbstractTest {
+
+    ExecutorPlus ex;
+    CountDownLatch release;
+    List<Integer> results;
+
+    @Before
+    public void setUp() {
+        release = new CountDownLatch(1);
+        results = new CopyOnWriteArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    private void saturate(SaturationPolicy policy) {
+        ex = ExecutorPlusFactory.newSingelThreadPool(2, policy);
+        ex.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // giving the thread some time to take the first task.
+        waitFor(100);
+        for (int i = 1; i <= 2; i++) {
+            int j = i;
+            ex.execute(() -> results.add(j));
+        }
+        assertEquals(2, ex.getQueueSize());
+    }
+
+    @Test
+    public void testAbort() {
+        saturate(SaturationPolicy.ABORT);
+        try {
+            ex.execute(() -> results.add(3));
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertNotNull(e);
+        }
+        assertEquals(1, ex.getSaturationCount(SaturationPolicy.ABORT));
+        release.countDown();
+        ex.waitToFinish();
+        assertEquals(2, results.size());
+    }
+
+    @Test
+    public void testAbortBatch() {
+        ex = ExecutorPlusFactory.newSingelThreadPool(2, SaturationPolicy.ABORT);
+        ex.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waitFor(100);
+        try {
+            ex.executeAll(Arrays.asList(() -> results.add(1), () -> results.add(2),
+                    () -> results.add(3)));
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertNotNull(e);
+        }
+        release.countDown();
+        ex.waitToFinish();
+        assertEquals(Arrays.asList(1, 2), results);
+    }
+
+    @Test
+    public void testAbortSubmitAll() {
+        ex = ExecutorPlusFactory.newSingelThreadPool(2, SaturationPolicy.ABORT);
+        ex.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waitFor(100);
+        try {
+            ex.submitAll(Arrays.asList(() -> results.add(1), () -> results.add(2),
+                    () -> results.add(3)));
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertNotNull(e);
+        }
+        release.countDown();
+        ex.waitToFinish();
+        // the queued tasks are cancelled, since their futures are lost.
+        assertTrue(results.isEmpty());
+    }
+
+    @Test
+    public void testCallerRuns() {
+        saturate(SaturationPolicy.CALLER_RUNS);
+        ex.execute(() -> results.add(3));
+        assertEquals(1, results.size());
+        assertEquals(3, (int) results.get(0));
+        assertEquals(1, ex.getSaturationCount(SaturationPolicy.CALLER_RUNS));
+        release.countDown();
+        ex.waitToFinish();
+        assertEquals(3, results.size());
+    }
+
+    @Test
+    public void testDiscardOldest() {
+        saturate(SaturationPolicy.DISCARD_OLDEST);
+        ex.execute(() -> results.add(3));
+        assertEquals(2, ex.getQueueSize());
+        assertEquals(1, ex.getSaturationCount(SaturationPolicy.DISCARD_OLDEST));
+        release.countDown();
+        ex.waitToFinish();
+        assertEquals(2, results.size());
+        assertEquals(2, (int) results.get(0));
+        assertEquals(3, (int) results.get(1));
+    }
+
+    @Test
+    public void testDiscardNewest() throws Exception {
+        saturate(SaturationPolicy.DISCARD_NEWEST);
+        Future<?> dropped = ex.submit(() -> results.add(3));
+        assertTrue(dropped.isCancelled());
+        assertEquals(1, ex.getSaturationCount(SaturationPolicy.DISCARD_NEWEST));
+        release.countDown();
+        ex.waitToFinish();
+        assertEquals(2, results.size());
+        assertFalse(results.contains(3));
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        saturate(SaturationPolicy.BLOCK);
+        CountDownLatch submitted = new CountDownLatch(1);
+        new Thread(() -> {
+            ex.execute(() -> results.add(3));
+            submitted.countDown();
+        }).start();
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(submitted.await(1, TimeUnit.SECONDS));
+        ex.waitToFinish();
+        assertEquals(3, results.size());
+        assertEquals(1, ex.getSaturationCount(SaturationPolicy.BLOCK));
+    }
+
+    @Test
+    public void testScheduledTaskIsNotRunByTimer() {
+        for (SaturationPolicy policy : new SaturationPolicy[]{SaturationPolicy.BLOCK, SaturationPolicy.CALLER_RUNS}) {
+            setUp();
+            saturate(policy);
+            List<String> threads = new CopyOnWriteArrayList<>();
+            ScheduledFuture<?> scheduled = ex.schedule(() -> threads.add(Thread.currentThread().getName()),
+                    10, TimeUnit.MILLISECONDS);
+            waitFor(100);
+            // the task fires again on each tick until there is space in the queue.
+            assertFalse(scheduled.isDone());
+            assertTrue(threads.isEmpty());
+            assertTrue(ex.getSaturationCount(policy) > 0);
+            release.countDown();
+            ex.waitToFinish();
+            assertTrue(scheduled.isDone());
+            assertEquals(1, threads.size());
+            assertNotEquals("executorplus-timer", threads.get(0));
+            assertEquals(2, results.size());
+            ex.shutdownNow();
+        }
+    }
+}
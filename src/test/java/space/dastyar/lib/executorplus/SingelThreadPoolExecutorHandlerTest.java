@@ -4,6 +4,7 @@ import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Test;
 import space.dastyar.lib.executorplus.ExecutorPlusFactory;
 import static org.junit.Assert.*;
 
@@ -52,4 +53,9 @@ public class SingelThreadPoolExecutorHandlerTest extends ExecuteHandlerTest {
         assertEquals(10, counterForPause.get());
     }
 
+    @Test(expected = UnsupportedOperationException.class)
+    public void testResizeIsNotSupported() {
+        ex.setPoolSize(2);
+    }
+
 }
@@ -0,0 +1,144 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class TaskGroupHandlerTest implements AbstractTest {
+
+    ExecutorPlus ex;
+
+    @Before
+    public void setUp() {
+        ex = ExecutorPlusFactory.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        ex.shutdownNow();
+    }
+
+    @Test
+    public void testAwaitOwnTasksOnly() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TaskGroup other = ex.newTaskGroup();
+        other.execute(() -> await(release));
+        TaskGroup group = ex.newTaskGroup();
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            group.execute(counter::incrementAndGet);
+        }
+        assertTrue(group.await(5, TimeUnit.SECONDS));
+        assertEquals(100, counter.get());
+        assertFalse(group.isBusy());
+        assertEquals(0, group.getInFlightCount());
+        // the other group and the executor are still busy.
+        assertTrue(other.isBusy());
+        assertEquals(1, other.getInFlightCount());
+        assertTrue(ex.isBusy());
+        assertFalse(other.await(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        other.await();
+        assertFalse(other.isBusy());
+    }
+
+    @Test
+    public void testSubmit() throws Exception {
+        TaskGroup group = ex.newTaskGroup();
+        ListenableFuture<Integer> future = group.submit(() -> 42);
+        ListenableFuture<?> empty = group.submit(() -> {
+        });
+        group.await();
+        assertEquals(42, (int) future.get());
+        assertNull(empty.get());
+    }
+
+    @Test
+    public void testFailFast() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TaskGroup group = ex.newTaskGroup();
+        ListenableFuture<?> blocked = group.submit(() -> await(release));
+        ListenableFuture<?> queued = group.submit(() -> {
+        });
+        group.execute(() -> {
+            throw new IllegalStateException("faild");
+        });
+        try {
+            group.await(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(group.isCancelled());
+        assertTrue(blocked.isCancelled());
+        assertTrue(queued.isDone());
+        assertTrue(group.getFailure() instanceof IllegalStateException);
+        release.countDown();
+        ex.waitToFinish();
+    }
+
+    @Test
+    public void testNoFailFast() throws Exception {
+        TaskGroup group = ex.newTaskGroup(false);
+        AtomicInteger counter = new AtomicInteger();
+        group.execute(() -> {
+            throw new IllegalStateException("faild");
+        });
+        for (int i = 0; i < 10; i++) {
+            group.execute(counter::incrementAndGet);
+        }
+        try {
+            group.await();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(10, counter.get());
+        assertFalse(group.isCancelled());
+        // the exception does not reach the worker.
+        assertEquals(4, ex.getThreadCount());
+    }
+
+    @Test
+    public void testCancelAll() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        TaskGroup other = ex.newTaskGroup();
+        // keeps all of the workers busy.
+        for (int i = 0; i < 4; i++) {
+            other.execute(() -> await(release));
+        }
+        TaskGroup group = ex.newTaskGroup();
+        ListenableFuture<?> task = group.submit(() -> {
+        });
+        group.cancelAll();
+        assertTrue(task.isCancelled());
+        assertTrue(group.await(1, TimeUnit.SECONDS));
+        assertEquals(4, other.getInFlightCount());
+        try {
+            group.execute(() -> {
+            });
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertTrue(group.isCancelled());
+        }
+        release.countDown();
+        other.await();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullTask() {
+        ex.newTaskGroup().execute(null);
+    }
+
+}
@@ -0,0 +1,145 @@
+package space.dastyar.lib.executorplus;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class TimingWheelTest implements AbstractTest {
+
+    TimingWheel wheel;
+    List<Runnable> expired;
+    List<Runnable> discarded;
+
+    @Before
+    public void setUp() {
+        expired = new CopyOnWriteArrayList<>();
+        discarded = new CopyOnWriteArrayList<>();
+        // a small wheel, so the tests cover more than one round.
+        wheel = new TimingWheel(TimeUnit.MILLISECONDS.toNanos(1), 8, expired::add, discarded::add);
+    }
+
+    @After
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    private long after(long millis) {
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    public void testExpireInOrder() {
+        Runnable first = () -> {
+        };
+        Runnable second = () -> {
+        };
+        wheel.add(second, after(100));
+        wheel.add(first, after(30));
+        waitFor(60);
+        assertEquals(1, expired.size());
+        assertSame(first, expired.get(0));
+        waitFor(100);
+        assertEquals(2, expired.size());
+        assertSame(second, expired.get(1));
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+    @Test
+    public void testNotExpiredEarly() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        long[] expiredAt = new long[1];
+        TimingWheel timer = new TimingWheel(TimeUnit.MILLISECONDS.toNanos(1), 8, task -> {
+            expiredAt[0] = System.nanoTime();
+            done.countDown();
+        }, discarded::add);
+        long deadline = after(50);
+        timer.add(() -> {
+        }, deadline);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(expiredAt[0] - deadline >= 0);
+        timer.stop();
+    }
+
+    @Test
+    public void testCancel() {
+        TimingWheel.Timeout timeout = wheel.add(() -> {
+        }, after(50));
+        assertEquals(1, wheel.getPendingCount());
+        assertTrue(wheel.cancel(timeout));
+        assertFalse(wheel.cancel(timeout));
+        assertEquals(0, wheel.getPendingCount());
+        waitFor(100);
+        assertTrue(expired.isEmpty());
+    }
+
+    @Test
+    public void testCancelledTaskIsReleased() {
+        // a capturing lambda, so it is a new object which can be collected.
+        Runnable task = () -> expired.size();
+        WeakReference<Runnable> reference = new WeakReference<>(task);
+        TimingWheel.Timeout timeout = wheel.add(task, after(60000));
+        // giving the ticker some time to move the timeout to its bucket.
+        waitFor(50);
+        assertTrue(wheel.cancel(timeout));
+        task = null;
+        timeout = null;
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            waitFor(20);
+        }
+        assertNull(reference.get());
+    }
+
+    @Test
+    public void testManyTimeouts() {
+        AtomicInteger count = new AtomicInteger();
+        TimingWheel timer = new TimingWheel(TimeUnit.MILLISECONDS.toNanos(1), 8,
+                task -> count.incrementAndGet(), discarded::add);
+        int expired = 50000;
+        for (int i = 0; i < 100000; i++) {
+            TimingWheel.Timeout timeout = timer.add(() -> {
+            }, after(i % 100));
+            // a timeout which is due right away may expire before the cancel.
+            if (i % 2 == 0 && !timer.cancel(timeout)) {
+                expired++;
+            }
+        }
+        for (int i = 0; i < 50 && timer.getPendingCount() > 0; i++) {
+            waitFor(100);
+        }
+        assertEquals(0, timer.getPendingCount());
+        assertEquals(expired, count.get());
+        timer.stop();
+    }
+
+    @Test
+    public void testStop() {
+        wheel.add(() -> {
+        }, after(10000));
+        wheel.stop();
+        assertEquals(1, discarded.size());
+        assertEquals(0, wheel.getPendingCount());
+        try {
+            wheel.add(() -> {
+            }, after(10));
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertNotNull(e);
+        }
+        assertEquals(0, wheel.getPendingCount());
+    }
+
+}
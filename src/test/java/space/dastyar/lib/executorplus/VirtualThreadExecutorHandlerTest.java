@@ -0,0 +1,115 @@
+package space.dastyar.lib.executorplus;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class VirtualThreadExecutorHandlerTest extends ExecuteHandlerTest {
+
+    public VirtualThreadExecutorHandlerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        ex = newExecutor(Integer.MAX_VALUE);
+        queueSize = 0;
+    }
+
+    @After
+    public void tearDown() {
+        ex = null;
+    }
+
+    /**
+     * Some of the shared tests keep spinning tasks alive, which would
+     * starve the carrier threads of virtual threads, so platform threads
+     * are used for them.
+     */
+    private ExecutorPlus newExecutor(int maxConcurrency) {
+        return new VirtualThreadExecutorHandler(Thread::new, maxConcurrency);
+    }
+
+    @Test
+    public void testVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        ExecutorPlus virtual = ExecutorPlusFactory.newVirtualThreadExecutor();
+        String name = virtual.submit(() -> Thread.currentThread().getName()).get();
+        assertTrue(name.startsWith("executorplus-virtual-"));
+        virtual.waitToFinish();
+        assertFalse(virtual.isBusy());
+    }
+
+    @Test
+    public void testUnsupportedVirtualThreads() {
+        assumeFalse(VirtualThreads.isSupported());
+        try {
+            ExecutorPlusFactory.newVirtualThreadExecutor();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertNotNull(e);
+        }
+    }
+
+    @Override
+    public void assertPauseAndResumeTest() {
+        waitFor(100);
+        ex.pause();
+        for (int i = 0; i < booleans.size(); i++) {
+            booleans.set(i, false);
+        }
+        assertEquals(10, counterForPause.get());
+        ex.resume();
+        waitFor(100);
+        assertEquals(10, counterForPause.get());
+    }
+
+    @Test
+    public void testMaxConcurrency() {
+        ex = newExecutor(2);
+        initalPause();
+        waitFor(100);
+        assertEquals(2, ex.getThreadCount());
+        assertEquals(8, ex.getQueueSize());
+        assertEquals(2, counterForPause.get());
+        for (int i = 0; i < booleans.size(); i++) {
+            booleans.set(i, false);
+        }
+        ex.waitToFinish();
+        assertEquals(0, ex.getThreadCount());
+        assertEquals(10, counterForPause.get());
+    }
+
+    @Test
+    public void testQueuedWhilePaused() {
+        ex.pause();
+        initalPause();
+        waitFor(100);
+        assertEquals(10, ex.getQueueSize());
+        assertEquals(0, counterForPause.get());
+        assertTrue(ex.isBusy());
+        ex.resume();
+        for (int i = 0; i < booleans.size(); i++) {
+            booleans.set(i, false);
+        }
+        ex.waitToFinish();
+        assertEquals(10, counterForPause.get());
+    }
+}
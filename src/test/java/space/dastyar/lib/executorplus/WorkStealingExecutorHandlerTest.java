@@ -0,0 +1,144 @@
+package space.dastyar.lib.executorplus;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class WorkStealingExecutorHandlerTest extends ExecuteHandlerTest {
+
+    public WorkStealingExecutorHandlerTest() {
+    }
+
+    @BeforeClass
+    public static void setUpClass() {
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+    }
+
+    @Before
+    public void setUp() {
+        super.setUp();
+        ex = ExecutorPlusFactory.newWorkStealingPool(4);
+        queueSize = 6;
+    }
+
+    @After
+    public void tearDown() {
+        ex = null;
+    }
+
+    @Override
+    public void assertPauseAndResumeTest() {
+        waitFor(300);
+        ex.pause();
+        for (int i = 0; i < booleans.size(); i++) {
+            booleans.set(i, false);
+        }
+        assertEquals(4, counterForPause.get());
+        ex.resume();
+        waitFor(300);
+        assertEquals(10, counterForPause.get());
+    }
+
+    @Test
+    public void testLocalTasksAreStolen() throws InterruptedException {
+        Set<Thread> runners = ConcurrentHashMap.newKeySet();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(8);
+        ex.execute(() -> {
+            // submitted from inside a worker, so they go to its local deque.
+            for (int i = 0; i < 8; i++) {
+                ex.execute(() -> {
+                    runners.add(Thread.currentThread());
+                    waitFor(50);
+                    finished.countDown();
+                });
+            }
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        assertTrue(finished.await(2, TimeUnit.SECONDS));
+        // the owner was blocked, so the other workers have stolen the tasks.
+        assertEquals(3, runners.size());
+        release.countDown();
+    }
+
+    @Test
+    public void testSpinWaitStealsTasks() throws InterruptedException {
+        ex.setSpinWait(10_000_000, 1000, 3);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(6);
+        ex.execute(() -> {
+            for (int i = 0; i < 6; i++) {
+                ex.execute(finished::countDown);
+            }
+            await(release);
+        });
+        // the spinning workers steal the tasks from the blocked owner.
+        assertTrue(finished.await(1, TimeUnit.SECONDS));
+        assertTrue(((ExecutorManager) ex).getSpinnerCount() <= 3);
+        release.countDown();
+        ex.shutdownNow();
+    }
+
+    @Test
+    public void testLocalTasksAreReported() throws InterruptedException {
+        CountDownLatch queued = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // keeps all of the workers busy so no one can steal.
+        for (int i = 0; i < 3; i++) {
+            ex.execute(() -> await(release));
+        }
+        ex.execute(() -> {
+            for (int i = 0; i < 5; i++) {
+                ex.execute(() -> {
+                });
+            }
+            queued.countDown();
+            await(release);
+        });
+        assertTrue(queued.await(1, TimeUnit.SECONDS));
+        assertEquals(5, ex.getQueueSize());
+        assertTrue(ex.isBusy());
+        ex.clear();
+        assertEquals(0, ex.getQueueSize());
+        release.countDown();
+    }
+
+    @Test
+    public void testShrinkPoolSizeKeepsLocalTasks() throws InterruptedException {
+        CountDownLatch queued = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(5);
+        ex.execute(() -> {
+            for (int i = 0; i < 5; i++) {
+                ex.execute(finished::countDown);
+            }
+            queued.countDown();
+            await(release);
+        });
+        assertTrue(queued.await(1, TimeUnit.SECONDS));
+        ex.setPoolSize(1);
+        release.countDown();
+        assertTrue(finished.await(2, TimeUnit.SECONDS));
+        ex.waitToFinish();
+        waitFor(100);
+        assertEquals(1, ex.getThreadCount());
+    }
+}
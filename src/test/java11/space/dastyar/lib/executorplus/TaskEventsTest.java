@@ -0,0 +1,102 @@
+package space.dastyar.lib.executorplus;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Checks the Java Flight Recorder events of the Java 11 version of
+ * {@link TaskEvents}.
+ *
+ * @since 0.1
+ * @author Alireza Dastyar
+ */
+public class TaskEventsTest implements AbstractTest {
+
+    private static final String PREFIX = "space.dastyar.executorplus.";
+
+    ExecutorPlus ex;
+    Recording recording;
+    Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        recording = new Recording();
+        for (String name : new String[]{"TaskQueued", "TaskDequeued", "TaskStarted", "TaskFinished", "TaskFailed"}) {
+            recording.enable(PREFIX + name).withThreshold(Duration.ZERO);
+        }
+        file = Files.createTempFile("executorplus", ".jfr");
+        ex = ExecutorPlusFactory.newFixedThreadPool(1);
+        ex.setName("events-test");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ex.shutdownNow();
+        recording.close();
+        Files.deleteIfExists(file);
+    }
+
+    private List<RecordedEvent> record(Runnable tasks) throws Exception {
+        recording.start();
+        tasks.run();
+        ex.waitToFinish();
+        recording.stop();
+        recording.dump(file);
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().startsWith(PREFIX))
+                .filter(event -> "events-test".equals(event.getString("pool")))
+                .collect(Collectors.toList());
+    }
+
+    private List<RecordedEvent> of(List<RecordedEvent> events, String name) {
+        return events.stream()
+                .filter(event -> event.getEventType().getName().equals(PREFIX + name))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testTaskEvents() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            ex.execute(() -> waitFor(20));
+            ex.submit(() -> {
+                throw new IllegalStateException("faild");
+            });
+        });
+        assertEquals(2, of(events, "TaskQueued").size());
+        assertEquals(2, of(events, "TaskDequeued").size());
+        for (RecordedEvent event : of(events, "TaskDequeued")) {
+            assertNotNull(event.getThread("worker"));
+            assertTrue(event.getDuration("queueWait").toNanos() >= 0);
+        }
+        assertEquals(2, of(events, "TaskStarted").size());
+        List<RecordedEvent> finished = of(events, "TaskFinished");
+        assertEquals(1, finished.size());
+        assertTrue(finished.get(0).getDuration("runDuration").toMillis() >= 20);
+        List<RecordedEvent> failed = of(events, "TaskFailed");
+        assertEquals(1, failed.size());
+        assertEquals(IllegalStateException.class.getName(), failed.get(0).getClass("exception").getName());
+        assertEquals("faild", failed.get(0).getString("message"));
+    }
+
+    @Test
+    public void testDisabledEvents() throws Exception {
+        recording.disable(PREFIX + "TaskQueued");
+        recording.disable(PREFIX + "TaskStarted");
+        List<RecordedEvent> events = record(() -> ex.execute(() -> {
+        }));
+        assertTrue(of(events, "TaskQueued").isEmpty());
+        assertTrue(of(events, "TaskStarted").isEmpty());
+        assertEquals(1, of(events, "TaskFinished").size());
+    }
+
+}